@@ -0,0 +1,238 @@
+package mas2023.group4.bench;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.DomainImpl;
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.Actions;
+import genius.core.boaframework.NegotiationSession;
+import genius.core.misc.Range;
+import genius.core.timeline.DiscreteTimeline;
+import genius.core.utility.AdditiveUtilitySpace;
+import mas2023.group4.Group4_AS;
+import mas2023.group4.Group4_BS;
+import mas2023.group4.Group4_OM;
+import mas2023.group4.Group4_OMS;
+
+/**
+ * Measures the per-round cost of the Group4 BOA components on the bundled
+ * templates. Every benchmark operation is one round of a single component:
+ * <ul>
+ * <li>determineNextBid: Group4_BS picks the next bid, one round later;
+ * <li>updateModel: Group4_OM learns from the next opponent bid, in a session
+ * which is started over after ROUNDS opponent bids;
+ * <li>getBid: Group4_OMS picks a bid from the candidates near 0.8;
+ * <li>determineAcceptability: Group4_AS judges the last opponent bid.
+ * </ul>
+ * The default run reports ops/s together with the allocation rate per
+ * operation (gc.alloc.rate.norm) of the GC profiler. Run it with
+ *
+ * <pre>
+ * mvn -P benchmark compile exec:exec
+ * </pre>
+ *
+ * from the project root. The benchmark runs in a separate JVM with the class
+ * path of the project, which JMH passes on to its forks. JMH options follow
+ * the main class, e.g.
+ * -Dexec.args="-classpath %classpath mas2023.group4.bench.Group4Benchmark -p scenario=Domain16/Domain16.xml;Domain16/Domain16_util1.xml".
+ * The templates are read from etc/templates unless the system property
+ * "templates" points elsewhere.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Group4Benchmark {
+
+	/** Number of rounds of the deadline, as in the logged 180rounds sessions */
+	private static final int ROUNDS = 180;
+	/** Number of pregenerated opponent bids */
+	private static final int OPPONENT_BIDS = 1024;
+
+	/** Domain and profile, relative to the templates directory */
+	@Param({ "partydomain/party_domain.xml;partydomain/party1_utility.xml",
+			"Domain16/Domain16.xml;Domain16/Domain16_util1.xml",
+			"ANAC2015/group1-university/University.xml;ANAC2015/group1-university/University_util1.xml",
+			"ANAC2016/Caduceus/Smart_Grid.xml;ANAC2016/Caduceus/Smart_Grid_util1.xml",
+			"ANAC2016/Maxoops/WindFarm.xml;ANAC2016/Maxoops/WindFarm_util1.xml" })
+	public String scenario;
+
+	private AdditiveUtilitySpace utilitySpace;
+	private BenchmarkSession session;
+	private Group4_BS bs;
+	private Group4_AS as;
+	private Group4_OM om;
+	private Group4_OMS oms;
+
+	private BidDetails[] opponentBids;
+	private int nextOpponentBid;
+	private List<BidDetails> candidates;
+
+	/**
+	 * Sets up a fresh session per iteration, so that the time and the bid
+	 * history of the session do not grow without bound.
+	 */
+	@Setup(Level.Iteration)
+	public void setUp() throws Exception {
+		String templates = System.getProperty("templates", "etc/templates");
+		String[] files = scenario.split(";");
+		Domain domain = new DomainImpl(templates + "/" + files[0]);
+		utilitySpace = new AdditiveUtilitySpace(domain, templates + "/" + files[1]);
+
+		session = new BenchmarkSession(utilitySpace);
+
+		om = new Group4_OM();
+		om.init(session, new HashMap<String, Double>());
+		oms = new Group4_OMS();
+		oms.init(session, om, new HashMap<String, Double>());
+		Map<String, Double> bsParams = new HashMap<String, Double>();
+		bsParams.put("e", 0.2);
+		bsParams.put("a", 0.1);
+		bs = new Group4_BS();
+		bs.init(session, om, oms, bsParams);
+		as = new Group4_AS();
+		as.init(session, bs, om, new HashMap<String, Double>());
+
+		Random random = new Random(42);
+		opponentBids = new BidDetails[OPPONENT_BIDS];
+		for (int i = 0; i < OPPONENT_BIDS; i++) {
+			Bid bid = domain.getRandomBid(random);
+			opponentBids[i] = new BidDetails(bid, utilitySpace.getUtility(bid), 0);
+		}
+		nextOpponentBid = 0;
+		session.getOpponentBidHistory().add(nextOpponentBid());
+		bs.determineOpeningBid();
+		candidates = session.getOutcomeSpace().getBidsinRange(new Range(0.8, 0.81));
+	}
+
+	private BidDetails nextOpponentBid() {
+		BidDetails bid = opponentBids[nextOpponentBid];
+		nextOpponentBid = (nextOpponentBid + 1) % OPPONENT_BIDS;
+		return bid;
+	}
+
+	@Benchmark
+	public BidDetails determineNextBid() {
+		session.nextRound();
+		return bs.determineNextBid();
+	}
+
+	@Benchmark
+	public void updateModel(ModelState state) {
+		BidDetails bid = state.nextOpponentBid();
+		state.session.getOpponentBidHistory().add(bid);
+		state.om.updateModel(bid.getBid(), state.session.getTime());
+	}
+
+	@Benchmark
+	public BidDetails getBid() {
+		return oms.getBid(candidates);
+	}
+
+	@Benchmark
+	public Actions determineAcceptability() {
+		return as.determineAcceptability();
+	}
+
+	/**
+	 * Opponent model of the updateModel benchmark. Its session is started
+	 * over once it holds ROUNDS opponent bids, so that every iteration learns
+	 * from histories of the same lengths instead of an ever growing one.
+	 */
+	@State(Scope.Thread)
+	public static class ModelState {
+
+		private AdditiveUtilitySpace utilitySpace;
+		private BidDetails[] opponentBids;
+		private int nextOpponentBid;
+		private BenchmarkSession session;
+		private Group4_OM om;
+
+		@Setup(Level.Iteration)
+		public void setUp(Group4Benchmark benchmark) {
+			utilitySpace = benchmark.utilitySpace;
+			opponentBids = benchmark.opponentBids;
+			nextOpponentBid = 0;
+			startSession();
+		}
+
+		@Setup(Level.Invocation)
+		public void limitHistory() {
+			if (session.getOpponentBidHistory().size() >= ROUNDS) {
+				startSession();
+			}
+		}
+
+		private void startSession() {
+			session = new BenchmarkSession(utilitySpace);
+			om = new Group4_OM();
+			om.init(session, new HashMap<String, Double>());
+		}
+
+		private BidDetails nextOpponentBid() {
+			BidDetails bid = opponentBids[nextOpponentBid];
+			nextOpponentBid = (nextOpponentBid + 1) % OPPONENT_BIDS;
+			return bid;
+		}
+	}
+
+	/**
+	 * Session of which the time cycles through the rounds of the deadline,
+	 * so that every iteration covers the whole concession curve instead of
+	 * getting stuck at the deadline.
+	 */
+	private static class BenchmarkSession extends NegotiationSession {
+
+		private int round;
+
+		BenchmarkSession(AdditiveUtilitySpace utilitySpace) {
+			super(null, utilitySpace, new DiscreteTimeline(ROUNDS));
+		}
+
+		void nextRound() {
+			round = (round + 1) % ROUNDS;
+		}
+
+		@Override
+		public double getTime() {
+			return round / (double) ROUNDS;
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length > 0) {
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+		Options options = new OptionsBuilder()
+				.include(Group4Benchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -15,6 +15,7 @@ import genius.core.uncertainty.BidRanking;
 import genius.core.uncertainty.ExperimentalUserModel;
 import genius.core.utility.AbstractUtilitySpace;
 import genius.core.utility.CustomUtilitySpace;
+import mas2023.group4.HammingIndex;
 
 /**
  * Example of a party that deals with preference uncertainty by defining a custom UtilitySpace 
@@ -131,6 +132,9 @@ public class CustomUtilitySpacePartyExample extends AbstractNegotiationParty
 	 */
 	private class ClosestKnownBid extends CustomUtilitySpace
 	{
+		/** The ranking which is indexed, and its nearest-neighbour index */
+		private BidRanking indexedRanking;
+		private HammingIndex index;
 
 		public ClosestKnownBid(Domain dom) {
 			super(dom);
@@ -139,18 +143,20 @@ public class CustomUtilitySpacePartyExample extends AbstractNegotiationParty
 		@Override
 		public double getUtility(Bid bid) 
 		{
-			Bid closestRankedBid = getClosestBidRanked(bid);
-			return estimateUtilityOfRankedBid(closestRankedBid);
+			return estimateUtilityOfRank(getClosestRank(bid));
 		}
 		
 		public double estimateUtilityOfRankedBid(Bid b)
+		{
+			return estimateUtilityOfRank(getUserModel().getBidRanking().indexOf(b));
+		}
+
+		private double estimateUtilityOfRank(int i)
 		{
 			BidRanking bidRanking = getUserModel().getBidRanking();
 			Double min = bidRanking.getLowUtility();
 			double max = bidRanking.getHighUtility();
 			
-			int i = bidRanking.indexOf(b);
-			
 			// index:0 has utility min, index n-1 has utility max
 			return min + i * (max - min) / (double) bidRanking.getSize();
 		}
@@ -160,20 +166,23 @@ public class CustomUtilitySpacePartyExample extends AbstractNegotiationParty
 		 */
 		public Bid getClosestBidRanked(Bid bid)
 		{
-			List<Bid> bidOrder = getUserModel().getBidRanking().getBidOrder();
-			Bid closestBid = null;
-			double closestDistance = Double.MAX_VALUE;
-				
-			for (Bid b : bidOrder)
+			int rank = getClosestRank(bid);
+			return rank < 0 ? null : getUserModel().getBidRanking().getBidOrder().get(rank);
+		}
+
+		/**
+		 * @return the rank of the first ranked bid with the most values in
+		 *         common with the given bid, or -1 if none has any.
+		 */
+		private int getClosestRank(Bid bid)
+		{
+			BidRanking bidRanking = getUserModel().getBidRanking();
+			if (bidRanking != indexedRanking)
 			{
-				double d = 1 / (double) b.countEqualValues(bid);
-				if (d < closestDistance)
-				{
-					closestDistance = d;
-					closestBid = b;
-				}
+				index = new HammingIndex(bidRanking.getBidOrder(), getDomain());
+				indexedRanking = bidRanking;
 			}
-			return closestBid;
+			return index.nearest(bid);
 		}
 		
 	}
@@ -8,6 +8,7 @@ import genius.core.actions.Action;
 import genius.core.actions.Offer;
 import genius.core.parties.AbstractNegotiationParty;
 import genius.core.parties.NegotiationInfo;
+import mas2023.group4.BidRankIndex;
 
 /**
  * This class implements an example of an agent that uses elicitation in its strategy under uncertainty.
@@ -20,6 +21,8 @@ import genius.core.parties.NegotiationInfo;
 public class ElicitationAgentExample extends AbstractNegotiationParty {
 
 	private Random random = new Random();
+	/** Rank view of the bid ranking of the user model */
+	private BidRankIndex rankIndex;
 	/**
 	 * Initializes a new instance of the agent.
 	 */
@@ -32,23 +35,25 @@ public class ElicitationAgentExample extends AbstractNegotiationParty {
 			log("There is no preference uncertainty. Try this agent with a negotiation scenario that has preference uncertainty enabled.");
 			return;
 		}
+		rankIndex = new BidRankIndex(userModel.getBidRanking());
 	}
 
 	@Override
 	
 	public Action chooseAction(List<Class<? extends Action>> possibleActions) {
 		
-		List<Bid> bidOrder = userModel.getBidRanking().getBidOrder();
+		List<Bid> bidOrder = rankIndex.getBidOrder();
 		
 		if (getLastReceivedAction() instanceof Offer) {
 			Bid receivedBid = ((Offer) getLastReceivedAction()).getBid();
 			//Elicit receivedBid if it is not in bidOrder and TBC < 0.15
-			if(!bidOrder.contains(receivedBid) && user.getTotalBother()<0.15) {
+			if(!rankIndex.contains(receivedBid) && user.getTotalBother()<0.15) {
 				userModel = user.elicitRank(receivedBid,userModel);
-				bidOrder = userModel.getBidRanking().getBidOrder();
+				rankIndex.update(userModel.getBidRanking());
+				bidOrder = rankIndex.getBidOrder();
 			}
 			//Accept if and only if received bid is in top 10% of known bids 
-			double percentile = (bidOrder.size() - bidOrder.indexOf(receivedBid)) / (double) bidOrder.size();
+			double percentile = rankIndex.getPercentile(receivedBid);
 			if (percentile < 0.1)
 				return new Accept(getPartyId(), receivedBid);
 			
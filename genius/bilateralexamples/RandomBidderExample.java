@@ -11,6 +11,9 @@ import genius.core.actions.Offer;
 import genius.core.parties.AbstractNegotiationParty;
 import genius.core.parties.NegotiationInfo;
 import genius.core.utility.AbstractUtilitySpace;
+import genius.core.utility.AdditiveUtilitySpace;
+import mas2023.group4.AboveTargetSampler;
+import mas2023.group4.LazyOutcomeSpace;
 
 /**
  * A simple example agent that makes random bids above a minimum target utility. 
@@ -21,6 +24,8 @@ public class RandomBidderExample extends AbstractNegotiationParty
 {
 	private static double MINIMUM_TARGET = 0.8;
 	private Bid lastOffer;
+	/** Draws the bids above the target, if the utility space allows it */
+	private AboveTargetSampler sampler;
 
 	/**
 	 * Initializes a new instance of the agent.
@@ -29,6 +34,8 @@ public class RandomBidderExample extends AbstractNegotiationParty
 	public void init(NegotiationInfo info) 
 	{
 		super.init(info);
+		if (LazyOutcomeSpace.supports(utilitySpace))
+			sampler = new AboveTargetSampler((AdditiveUtilitySpace) utilitySpace, MINIMUM_TARGET);
 	}
 
 	/**
@@ -52,6 +59,10 @@ public class RandomBidderExample extends AbstractNegotiationParty
 
 	private Bid generateRandomBidAboveTarget() 
 	{
+		// draw directly from the bids above the target
+		if (sampler != null && sampler.getThreshold() == MINIMUM_TARGET && sampler.isFeasible())
+			return sampler.sample(rand);
+
 		Bid randomBid;
 		double util;
 		int i = 0;
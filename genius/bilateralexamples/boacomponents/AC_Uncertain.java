@@ -1,7 +1,5 @@
 package mas2023.group4;
 
-import java.util.List;
-
 import genius.core.Bid;
 import genius.core.boaframework.AcceptanceStrategy;
 import genius.core.boaframework.Actions;
@@ -19,6 +17,9 @@ import genius.core.uncertainty.UserModel;
  */
 public class AC_Uncertain extends AcceptanceStrategy {
 
+	/** Rank view of the bid ranking of the user model */
+	private BidRankIndex rankIndex;
+
 	@Override
 	public Actions determineAcceptability() {
 		Bid receivedBid = negotiationSession.getOpponentBidHistory()
@@ -30,11 +31,13 @@ public class AC_Uncertain extends AcceptanceStrategy {
 
 		UserModel userModel = negotiationSession.getUserModel();
 		if (userModel != null) {
-			List<Bid> bidOrder = userModel.getBidRanking().getBidOrder();
-			if (bidOrder.contains(receivedBid)) {
-				double percentile = (bidOrder.size()
-						- bidOrder.indexOf(receivedBid))
-						/ (double) bidOrder.size();
+			if (rankIndex == null) {
+				rankIndex = new BidRankIndex(userModel.getBidRanking());
+			} else {
+				rankIndex.update(userModel.getBidRanking());
+			}
+			if (rankIndex.contains(receivedBid)) {
+				double percentile = rankIndex.getPercentile(receivedBid);
 				if (percentile < 0.1)
 					return Actions.Accept;
 			}
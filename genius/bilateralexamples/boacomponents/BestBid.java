@@ -27,6 +27,9 @@ public class BestBid extends OMStrategy {
 	 */
 	double updateThreshold = 1.1;
 
+	/** Scores the candidate bids, reused between rounds */
+	private final CandidateScorer scorer = new CandidateScorer();
+
 	/**
 	 * Initializes the opponent model strategy. If a value for the parameter t
 	 * is given, then it is set to this value. Otherwise, the default value is
@@ -65,30 +68,19 @@ public class BestBid extends OMStrategy {
 		if (allBids.size() == 1) {
 			return allBids.get(0);
 		}
-		double bestUtil = -1;
-		BidDetails bestBid = allBids.get(0);
 
-		// 2. Check that not all bids are assigned at utility of 0
+		// 2. Determine the best bid, evaluating all bids in bulk
+		scorer.load(allBids, model);
+
+		// 3. Check that not all bids are assigned at utility of 0
 		// to ensure that the opponent model works. If the opponent model
 		// does not work, offer a random bid.
-		boolean allWereZero = true;
-		// 3. Determine the best bid
-		for (BidDetails bid : allBids) {
-			double evaluation = model.getBidEvaluation(bid.getBid());
-			if (evaluation > 0.0001) {
-				allWereZero = false;
-			}
-			if (evaluation > bestUtil) {
-				bestBid = bid;
-				bestUtil = evaluation;
-			}
-		}
-		// 4. The opponent model did not work, therefore, offer a random bid.
-		if (allWereZero) {
+		int best = scorer.selectBestForOpponent(0.0001);
+		if (best < 0) {
 			Random r = new Random();
 			return allBids.get(r.nextInt(allBids.size()));
 		}
-		return bestBid;
+		return allBids.get(best);
 	}
 
 	/**
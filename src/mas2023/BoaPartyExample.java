@@ -1,7 +1,5 @@
 package mas2023;
 
-import java.util.List;
-
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -12,10 +10,7 @@ import genius.core.boaframework.BoaParty;
 import genius.core.boaframework.OMStrategy;
 import genius.core.boaframework.OfferingStrategy;
 import genius.core.boaframework.OpponentModel;
-import genius.core.issue.IssueDiscrete;
-import genius.core.issue.ValueDiscrete;
 import genius.core.parties.NegotiationInfo;
-import genius.core.uncertainty.AdditiveUtilitySpaceFactory;
 import genius.core.utility.AbstractUtilitySpace;
 
 /**
@@ -65,25 +60,13 @@ public class BoaPartyExample extends BoaParty
 	 * face of preference uncertainty, can be specified by overriding the
 	 * default behavior.
 	 * 
-	 * This example estimator sets all weights and all evaluator values randomly.
+	 * This estimator fits the issue weights and value utilities to the bid
+	 * ranking of the user model, see {@link RankingEstimator}.
 	 */
 	@Override
 	public AbstractUtilitySpace estimateUtilitySpace() 
 	{
-		AdditiveUtilitySpaceFactory additiveUtilitySpaceFactory = new AdditiveUtilitySpaceFactory(getDomain());
-		List<IssueDiscrete> issues = additiveUtilitySpaceFactory.getIssues();
-		for (IssueDiscrete i : issues)
-		{
-			additiveUtilitySpaceFactory.setWeight(i, rand.nextDouble());
-			for (ValueDiscrete v : i.getValues())
-				additiveUtilitySpaceFactory.setUtility(i, v, rand.nextDouble());
-		}
-		
-		// Normalize the weights, since we picked them randomly in [0, 1]
-		additiveUtilitySpaceFactory.normalizeWeights();
-		
-		// The factory is done with setting all parameters, now return the estimated utility space
-		return additiveUtilitySpaceFactory.getUtilitySpace();
+		return new RankingEstimator(getDomain()).estimate(userModel.getBidRanking());
 	}
 	
 	@Override
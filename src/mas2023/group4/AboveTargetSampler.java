@@ -0,0 +1,284 @@
+package mas2023.group4;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import genius.core.Bid;
+import genius.core.utility.AdditiveUtilitySpace;
+
+/**
+ * Draws bids uniformly from the bids of which the utility is at least a
+ * threshold, for additive utility spaces with only discrete issues.
+ *
+ * The contributions of the values are rounded down onto a grid of GRID points
+ * per unit of utility. Every bid with a grid sum of at least the rounded up
+ * threshold is then above the threshold, and these bids are counted with a
+ * recursion over the issues, memoized per (issue, grid sum); a subtree in
+ * which even the best values fall short counts 0, and one in which even the
+ * worst values suffice counts all its completions. Since the grid sums of the
+ * issues i..n-1 span at most GRID points, the memo is bounded by about
+ * n * GRID entries, whatever the size of the domain.
+ *
+ * The other bids above the threshold lose less than a grid point per issue to
+ * the rounding, so their utility is within n / GRID of the threshold. They
+ * are found once by a search which compares the exact utility, and which
+ * skips the subtrees that are entirely below the threshold or entirely on
+ * the grid. Together the two parts are exactly the bids above the threshold.
+ *
+ * A bid is drawn from either part in proportion to its size: from the grid
+ * issue by issue, picking every value with a probability proportional to the
+ * number of completions, or from the found bids directly. Every bid above the
+ * threshold is equally likely, and no bid is drawn again.
+ */
+public class AboveTargetSampler {
+
+	/** Maximum number of memoized (issue, grid sum) entries */
+	private static final int MAX_STATES = 500000;
+	/** Minimum number of grid points per unit of utility */
+	private static final int MIN_GRID = 10000;
+	/** Tolerance on the utility, against rounding in the sums */
+	private static final double EPSILON = 1e-12;
+
+	private final BidCodec codec;
+	private final double threshold;
+	/** Per issue, the value indices sorted on descending contribution */
+	private final int[][] order;
+	/** Per issue, the contribution of the value at the same position */
+	private final double[][] contributions;
+	/** Per issue, the contribution rounded down onto the grid */
+	private final long[][] grid;
+	/** Grid sum from which on every bid is above the threshold */
+	private final long gridThreshold;
+	/** Sum of the best contributions of the issues i..n-1 */
+	private final double[] maxRest;
+	/** Sum of the best (worst) grid contributions of the issues i..n-1 */
+	private final long[] maxGridRest;
+	private final long[] minGridRest;
+	/** Number of completions of the issues i..n-1 */
+	private final double[] completions;
+	/**
+	 * Per issue, the number of completions of the issues i..n-1 with a grid
+	 * sum of at least need, at need - minGridRest[i] - 1; NaN if not counted
+	 */
+	private final double[][] memo;
+	/**
+	 * The codes of the bids above the threshold below gridThreshold, one
+	 * after the other; null until searched
+	 */
+	private int[] offGrid;
+	private int offGridSize;
+
+	/** The drawn bid, as value indices */
+	private final int[] code;
+	private final double[] weights;
+
+	public AboveTargetSampler(AdditiveUtilitySpace utilitySpace, double threshold) {
+		this(utilitySpace, new BidCodec(utilitySpace.getDomain()), threshold);
+	}
+
+	public AboveTargetSampler(AdditiveUtilitySpace utilitySpace, BidCodec codec, double threshold) {
+		this(codec, codec.contributions(utilitySpace), threshold);
+	}
+
+	/**
+	 * @param table
+	 *            the contribution of every value, indexed like the codec.
+	 */
+	AboveTargetSampler(BidCodec codec, double[][] table, double threshold) {
+		this.codec = codec;
+		this.threshold = threshold;
+		int n = codec.getNumberOfIssues();
+		order = new int[n][];
+		contributions = new double[n][];
+		int maxValues = 1;
+		for (int i = 0; i < n; i++) {
+			final double[] c = table[i];
+			Integer[] sorted = new Integer[c.length];
+			for (int j = 0; j < c.length; j++) {
+				sorted[j] = j;
+			}
+			Arrays.sort(sorted, (x, y) -> Double.compare(c[y], c[x]));
+			order[i] = new int[c.length];
+			contributions[i] = new double[c.length];
+			for (int j = 0; j < c.length; j++) {
+				order[i][j] = sorted[j];
+				contributions[i][j] = c[sorted[j]];
+			}
+			maxValues = Math.max(maxValues, c.length);
+		}
+
+		// as fine a grid as the memo allows, which keeps the bids off the grid few
+		double resolution = Math.max(MIN_GRID, MAX_STATES / Math.max(1, n));
+		grid = new long[n][];
+		for (int i = 0; i < n; i++) {
+			grid[i] = new long[contributions[i].length];
+			for (int j = 0; j < grid[i].length; j++) {
+				grid[i][j] = (long) Math.floor(contributions[i][j] * resolution);
+			}
+		}
+		gridThreshold = (long) Math.ceil((threshold - EPSILON) * resolution);
+
+		maxRest = new double[n + 1];
+		maxGridRest = new long[n + 1];
+		minGridRest = new long[n + 1];
+		completions = new double[n + 1];
+		completions[n] = 1;
+		for (int i = n - 1; i >= 0; i--) {
+			double[] c = contributions[i];
+			long[] g = grid[i];
+			maxRest[i] = maxRest[i + 1] + c[0];
+			maxGridRest[i] = maxGridRest[i + 1] + g[0];
+			minGridRest[i] = minGridRest[i + 1] + g[g.length - 1];
+			completions[i] = completions[i + 1] * c.length;
+		}
+		memo = new double[n + 1][];
+		code = new int[n];
+		weights = new double[maxValues];
+	}
+
+	public double getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * @return true if there is a bid with a utility of at least the threshold.
+	 */
+	public boolean isFeasible() {
+		return maxRest[0] >= threshold - EPSILON;
+	}
+
+	/**
+	 * @return the number of bids with a utility of at least the threshold.
+	 */
+	double size() {
+		if (!isFeasible()) {
+			return 0;
+		}
+		searchOffGrid();
+		return count(0, gridThreshold) + offGridSize;
+	}
+
+	/**
+	 * @return a uniformly drawn bid with a utility of at least the threshold,
+	 *         or null if there is none.
+	 */
+	public Bid sample(Random random) {
+		if (!isFeasible()) {
+			return null;
+		}
+		searchOffGrid();
+		double onGrid = count(0, gridThreshold);
+		if (random.nextDouble() * (onGrid + offGridSize) < offGridSize) {
+			System.arraycopy(offGrid, random.nextInt(offGridSize) * code.length, code, 0, code.length);
+		} else {
+			sampleGrid(random);
+		}
+		return codec.decode(code);
+	}
+
+	/**
+	 * Draws the code of a bid with a grid sum of at least gridThreshold,
+	 * uniformly.
+	 */
+	private void sampleGrid(Random random) {
+		long need = gridThreshold;
+		for (int i = 0; i < code.length; i++) {
+			long[] g = grid[i];
+			double total = 0;
+			int candidates = 0;
+			for (int j = 0; j < g.length; j++) {
+				double count = count(i + 1, need - g[j]);
+				if (count == 0) {
+					// the remaining values contribute even less
+					break;
+				}
+				weights[j] = count;
+				total += count;
+				candidates++;
+			}
+			double draw = random.nextDouble() * total;
+			int chosen = candidates - 1;
+			for (int j = 0; j < candidates; j++) {
+				draw -= weights[j];
+				if (draw < 0) {
+					chosen = j;
+					break;
+				}
+			}
+			code[i] = order[i][chosen];
+			need -= g[chosen];
+		}
+	}
+
+	/**
+	 * @return the number of completions of the issues i..n-1 with a grid sum
+	 *         of at least need.
+	 */
+	private double count(int i, long need) {
+		if (maxGridRest[i] < need) {
+			return 0;
+		}
+		if (minGridRest[i] >= need) {
+			return completions[i];
+		}
+		if (memo[i] == null) {
+			memo[i] = new double[(int) (maxGridRest[i] - minGridRest[i])];
+			Arrays.fill(memo[i], Double.NaN);
+		}
+		int slot = (int) (need - minGridRest[i] - 1);
+		double known = memo[i][slot];
+		if (!Double.isNaN(known)) {
+			return known;
+		}
+		long[] g = grid[i];
+		double total = 0;
+		for (int j = 0; j < g.length; j++) {
+			long rest = need - g[j];
+			if (maxGridRest[i + 1] < rest) {
+				break;
+			}
+			total += count(i + 1, rest);
+		}
+		memo[i][slot] = total;
+		return total;
+	}
+
+	/**
+	 * Finds the bids above the threshold with a grid sum below gridThreshold,
+	 * once.
+	 */
+	private void searchOffGrid() {
+		if (offGrid == null) {
+			offGrid = new int[Math.max(1, code.length) * 16];
+			searchOffGrid(0, 0, 0);
+		}
+	}
+
+	private void searchOffGrid(int i, double utility, long gridSum) {
+		if (gridSum + minGridRest[i] >= gridThreshold) {
+			// every completion is on the grid
+			return;
+		}
+		if (i == code.length) {
+			if (utility < threshold - EPSILON) {
+				return;
+			}
+			if (offGrid.length < (offGridSize + 1) * code.length) {
+				offGrid = Arrays.copyOf(offGrid, offGrid.length * 2);
+			}
+			System.arraycopy(code, 0, offGrid, offGridSize * code.length, code.length);
+			offGridSize++;
+			return;
+		}
+		double[] c = contributions[i];
+		for (int j = 0; j < c.length; j++) {
+			// with some slack, since maxRest is summed in another order than the utility
+			if (utility + c[j] + maxRest[i + 1] < threshold - 2 * EPSILON) {
+				// the remaining values contribute even less
+				break;
+			}
+			code[i] = order[i][j];
+			searchOffGrid(i + 1, utility + c[j], gridSum + grid[i][j]);
+		}
+	}
+}
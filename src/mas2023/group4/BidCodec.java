@@ -0,0 +1,205 @@
+package mas2023.group4;
+
+import java.util.HashMap;
+import java.util.List;
+
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.issue.Issue;
+import genius.core.issue.IssueDiscrete;
+import genius.core.issue.Value;
+import genius.core.issue.ValueDiscrete;
+import genius.core.utility.AdditiveUtilitySpace;
+import genius.core.utility.EvaluatorDiscrete;
+
+/**
+ * Compact encoding of bids in a domain with only discrete issues. A bid is
+ * encoded as an int array holding, for every issue in the order of the domain,
+ * the index of its value in that issue. If the size of the outcome space
+ * allows it, an encoded bid can also be packed into a single long.
+ *
+ * The codec is immutable after construction and can be shared between
+ * components negotiating in the same domain.
+ */
+public class BidCodec {
+
+	private final Domain domain;
+	/** Issue numbers, in the order of the domain */
+	private final int[] issueNumbers;
+	/** Per issue, the values in the order of the issue */
+	private final ValueDiscrete[][] values;
+	/** Per issue, the index of every value */
+	private final HashMap<Value, Integer>[] valueIndices;
+	/** Place value of every issue when packing, or null if the domain is too large */
+	private final long[] radix;
+
+	@SuppressWarnings("unchecked")
+	public BidCodec(Domain domain) {
+		this.domain = domain;
+		List<Issue> issues = domain.getIssues();
+		int n = issues.size();
+		issueNumbers = new int[n];
+		values = new ValueDiscrete[n][];
+		valueIndices = new HashMap[n];
+
+		for (int i = 0; i < n; i++) {
+			IssueDiscrete issue = (IssueDiscrete) issues.get(i);
+			issueNumbers[i] = issue.getNumber();
+			List<ValueDiscrete> issueValues = issue.getValues();
+			values[i] = issueValues.toArray(new ValueDiscrete[issueValues.size()]);
+			valueIndices[i] = new HashMap<Value, Integer>();
+			for (int j = 0; j < values[i].length; j++) {
+				valueIndices[i].put(values[i][j], j);
+			}
+		}
+
+		long[] r = new long[n];
+		long place = 1;
+		for (int i = n - 1; i >= 0 && r != null; i--) {
+			r[i] = place;
+			if (place > Long.MAX_VALUE / values[i].length) {
+				r = null;
+			} else {
+				place *= values[i].length;
+			}
+		}
+		radix = r;
+	}
+
+	public Domain getDomain() {
+		return domain;
+	}
+
+	public int getNumberOfIssues() {
+		return issueNumbers.length;
+	}
+
+	public int getNumberOfValues(int issue) {
+		return values[issue].length;
+	}
+
+	/**
+	 * @return the issue number in the domain of the issue at the given
+	 *         position.
+	 */
+	public int getIssueNumber(int issue) {
+		return issueNumbers[issue];
+	}
+
+	public ValueDiscrete getValue(int issue, int valueIndex) {
+		return values[issue][valueIndex];
+	}
+
+	/**
+	 * @return the index of the value in the issue, or -1 if it is unknown.
+	 */
+	public int indexOf(int issue, Value value) {
+		Integer index = valueIndices[issue].get(value);
+		return index == null ? -1 : index;
+	}
+
+	public int[] encode(Bid bid) {
+		int[] code = new int[issueNumbers.length];
+		encode(bid, code);
+		return code;
+	}
+
+	/**
+	 * Encodes the bid into the given array, which is expected to have a
+	 * length equal to the number of issues. A value which is not in the
+	 * domain is encoded as -1.
+	 *
+	 * @return true if every value of the bid is in the domain.
+	 */
+	public boolean encode(Bid bid, int[] into) {
+		boolean known = true;
+		for (int i = 0; i < issueNumbers.length; i++) {
+			try {
+				into[i] = indexOf(i, bid.getValue(issueNumbers[i]));
+			} catch (Exception ex) {
+				ex.printStackTrace();
+				into[i] = -1;
+			}
+			known &= into[i] >= 0;
+		}
+		return known;
+	}
+
+	public Bid decode(int[] code) {
+		HashMap<Integer, Value> bidValues = new HashMap<Integer, Value>();
+		for (int i = 0; i < issueNumbers.length; i++) {
+			bidValues.put(issueNumbers[i], values[i][code[i]]);
+		}
+		return new Bid(domain, bidValues);
+	}
+
+	/**
+	 * @return true if the encoded bids of this domain fit in a long.
+	 */
+	public boolean canPack() {
+		return radix != null;
+	}
+
+	public long pack(int[] code) {
+		long packed = 0;
+		for (int i = 0; i < code.length; i++) {
+			packed += code[i] * radix[i];
+		}
+		return packed;
+	}
+
+	public void unpack(long packed, int[] into) {
+		for (int i = 0; i < into.length; i++) {
+			into[i] = (int) (packed / radix[i]);
+			packed %= radix[i];
+		}
+	}
+
+	/**
+	 * Writes for every issue a 1 into diff if the value differs between the
+	 * two encoded bids, else a 0.
+	 *
+	 * @return the number of issues of which the value changed.
+	 */
+	public static int difference(int[] first, int[] second, int[] diff) {
+		int changed = 0;
+		for (int i = 0; i < first.length; i++) {
+			diff[i] = first[i] == second[i] ? 0 : 1;
+			changed += diff[i];
+		}
+		return changed;
+	}
+
+	/**
+	 * Builds the table of the contribution (issue weight * normalized
+	 * evaluation) of every value to the utility in the given additive utility
+	 * space, indexed like the encoded bids.
+	 */
+	public double[][] contributions(AdditiveUtilitySpace utilitySpace) {
+		double[][] table = new double[issueNumbers.length][];
+		for (int i = 0; i < issueNumbers.length; i++) {
+			table[i] = new double[values[i].length];
+			double weight = utilitySpace.getWeight(issueNumbers[i]);
+			EvaluatorDiscrete evaluator = (EvaluatorDiscrete) utilitySpace.getEvaluator(issueNumbers[i]);
+			for (int j = 0; j < values[i].length; j++) {
+				try {
+					table[i][j] = weight * evaluator.getEvaluation(values[i][j]);
+				} catch (Exception ex) {
+					ex.printStackTrace();
+				}
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * @return the utility of an encoded bid given a contribution table.
+	 */
+	public static double utility(double[][] contributions, int[] code) {
+		double util = 0;
+		for (int i = 0; i < code.length; i++) {
+			util += contributions[i][code[i]];
+		}
+		return util;
+	}
+}
@@ -0,0 +1,113 @@
+package mas2023.group4;
+
+import java.util.HashMap;
+import java.util.List;
+
+import genius.core.Bid;
+import genius.core.uncertainty.BidRanking;
+
+/**
+ * Hash index over the bid order of a {@link BidRanking}, from worst (index
+ * 0) to best, so that the rank of a bid is found in O(1) instead of by the
+ * linear contains / indexOf scans of the bid order.
+ *
+ * Eliciting a bid yields a ranking with that bid inserted. Such a ranking is
+ * indexed incrementally: the insertion point is found by binary search on
+ * the common prefix, and only the ranks of the bids above it shift. Of the
+ * bids above it only the last one is checked, so a ranking which also
+ * reorders other bids than the inserted one must not be passed to update.
+ */
+public class BidRankIndex {
+
+	private BidRanking ranking;
+	private List<Bid> bidOrder;
+	private final HashMap<Bid, Integer> ranks = new HashMap<Bid, Integer>();
+
+	public BidRankIndex(BidRanking ranking) {
+		rebuild(ranking);
+	}
+
+	private void rebuild(BidRanking newRanking) {
+		ranking = newRanking;
+		bidOrder = newRanking.getBidOrder();
+		ranks.clear();
+		for (int i = 0; i < bidOrder.size(); i++) {
+			ranks.put(bidOrder.get(i), i);
+		}
+	}
+
+	/**
+	 * Brings the index up to date with the given ranking, which is usually
+	 * the ranking of the user model returned by elicitRank.
+	 */
+	public void update(BidRanking newRanking) {
+		if (newRanking == ranking) {
+			return;
+		}
+		List<Bid> newOrder = newRanking.getBidOrder();
+		int n = bidOrder.size();
+		if (newOrder.size() != n + 1) {
+			rebuild(newRanking);
+			return;
+		}
+		// first index at which the orders differ, i.e. the inserted bid
+		int low = 0;
+		int high = n;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (newOrder.get(mid).equals(bidOrder.get(mid))) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		Bid inserted = newOrder.get(low);
+		// only the last bid of the suffix is compared, which assumes a single insertion as by elicitRank;
+		// an insertion at the top has no suffix
+		if (ranks.containsKey(inserted) || (low < n && !newOrder.get(n).equals(bidOrder.get(n - 1)))) {
+			// not a single insertion
+			rebuild(newRanking);
+			return;
+		}
+		for (int i = low + 1; i <= n; i++) {
+			ranks.put(newOrder.get(i), i);
+		}
+		ranks.put(inserted, low);
+		ranking = newRanking;
+		bidOrder = newOrder;
+	}
+
+	public BidRanking getRanking() {
+		return ranking;
+	}
+
+	public List<Bid> getBidOrder() {
+		return bidOrder;
+	}
+
+	public int size() {
+		return bidOrder.size();
+	}
+
+	public boolean contains(Bid bid) {
+		return ranks.containsKey(bid);
+	}
+
+	/**
+	 * @return the index of the bid in the bid order, or -1 if it is not
+	 *         ranked.
+	 */
+	public int indexOf(Bid bid) {
+		Integer rank = ranks.get(bid);
+		return rank == null ? -1 : rank;
+	}
+
+	/**
+	 * @return the fraction of ranked bids which are at least as good as the
+	 *         given bid: close to 0 for the best bid and 1 for the worst. As
+	 *         with indexOf, a bid which is not ranked gets a value above 1.
+	 */
+	public double getPercentile(Bid bid) {
+		return (bidOrder.size() - indexOf(bid)) / (double) bidOrder.size();
+	}
+}
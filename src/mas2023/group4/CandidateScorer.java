@@ -0,0 +1,135 @@
+package mas2023.group4;
+
+import java.util.List;
+
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.OpponentModel;
+
+/**
+ * Scores a list of candidate bids for an OM strategy. The candidates are
+ * held as a structure of arrays (own utility, estimated opponent utility and
+ * score) which is reused between rounds, so scoring a round does not
+ * allocate once the arrays are large enough.
+ *
+ * The own utility is taken from the BidDetails, which already carries it.
+ * The opponent utility is evaluated in bulk: from the lookup table of
+ * {@link Group4_OM} if that is the model, else bid by bid.
+ */
+public class CandidateScorer {
+
+	private double[] ownUtilities = new double[0];
+	private double[] opponentUtilities = new double[0];
+	private double[] scores = new double[0];
+	private int size;
+	private int[] encodedBid;
+
+	/**
+	 * Loads the own and estimated opponent utility of the candidates.
+	 */
+	public void load(List<BidDetails> bids, OpponentModel model) {
+		size = bids.size();
+		if (ownUtilities.length < size) {
+			int capacity = Math.max(size, 2 * ownUtilities.length);
+			ownUtilities = new double[capacity];
+			opponentUtilities = new double[capacity];
+			scores = new double[capacity];
+		}
+		for (int k = 0; k < size; k++) {
+			ownUtilities[k] = bids.get(k).getMyUndiscountedUtil();
+		}
+		evaluateAll(model, bids, opponentUtilities);
+	}
+
+	/**
+	 * Writes the estimated opponent utility of every bid into out.
+	 */
+	public void evaluateAll(OpponentModel model, List<BidDetails> bids, double[] out) {
+		if (model instanceof Group4_OM) {
+			Group4_OM om = (Group4_OM) model;
+			BidCodec codec = om.getCodec();
+			double[][] table = om.getTable();
+			if (encodedBid == null || encodedBid.length != codec.getNumberOfIssues()) {
+				encodedBid = new int[codec.getNumberOfIssues()];
+			}
+			for (int k = 0; k < bids.size(); k++) {
+				// a bid with a value which is not in the domain is worth nothing
+				out[k] = codec.encode(bids.get(k).getBid(), encodedBid) ? BidCodec.utility(table, encodedBid) : 0;
+			}
+		} else {
+			for (int k = 0; k < bids.size(); k++) {
+				out[k] = model.getBidEvaluation(bids.get(k).getBid());
+			}
+		}
+	}
+
+	/**
+	 * Selects in a single pass the candidate with the best score
+	 * weightAgentUtility * own + (1 - weightAgentUtility) * opponent among
+	 * those of which the opponent utility exceeds the reservation value. If
+	 * there are none, the opponent model is considered uninformative and the
+	 * candidate with the best own utility is selected instead.
+	 *
+	 * @return the index of the selected candidate, or -1 if there are none.
+	 */
+	public int selectWeighted(double weightAgentUtility, double reservationValue) {
+		int best = -1;
+		double bestScore = -1;
+		int bestOwn = -1;
+		double maxOwnUtility = -1;
+		for (int k = 0; k < size; k++) {
+			double own = ownUtilities[k];
+			double opponent = opponentUtilities[k];
+			double score = weightAgentUtility * own + (1 - weightAgentUtility) * opponent;
+			scores[k] = score;
+			if (opponent > reservationValue && score > bestScore) {
+				best = k;
+				bestScore = score;
+			}
+			if (own > maxOwnUtility) {
+				bestOwn = k;
+				maxOwnUtility = own;
+			}
+		}
+		return best >= 0 ? best : bestOwn;
+	}
+
+	/**
+	 * @return the index of the candidate with the best opponent utility, or
+	 *         -1 if no opponent utility exceeds the given threshold.
+	 */
+	public int selectBestForOpponent(double threshold) {
+		int best = -1;
+		double bestUtil = -1;
+		boolean allWereZero = true;
+		for (int k = 0; k < size; k++) {
+			double opponent = opponentUtilities[k];
+			if (opponent > threshold) {
+				allWereZero = false;
+			}
+			if (opponent > bestUtil) {
+				best = k;
+				bestUtil = opponent;
+			}
+		}
+		return allWereZero ? -1 : best;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public double getOwnUtility(int k) {
+		return ownUtilities[k];
+	}
+
+	public double getOpponentUtility(int k) {
+		return opponentUtilities[k];
+	}
+
+	/**
+	 * @return the score of the candidate in the last call to selectWeighted.
+	 */
+	public double getScore(int k) {
+		return scores[k];
+	}
+}
@@ -0,0 +1,35 @@
+package mas2023.group4;
+
+import java.util.function.Consumer;
+import java.util.function.DoublePredicate;
+
+import genius.core.bidding.BidDetails;
+
+/**
+ * Outcome space which can count and stream the bids within a utility range
+ * without building a list of them.
+ */
+public interface CandidateSource {
+
+	/**
+	 * @return the number of bids with a utility in [lower, upper].
+	 */
+	int countInRange(double lower, double upper);
+
+	/**
+	 * Passes the bids with a utility in [lower, upper] to the action, in the
+	 * order of the filtered forEachInRange.
+	 */
+	default void forEachInRange(double lower, double upper, Consumer<BidDetails> action) {
+		forEachInRange(lower, upper, utility -> true, action);
+	}
+
+	/**
+	 * Passes the utility of every bid in [lower, upper] to the filter, and
+	 * only decodes and passes on the bids which it accepts. A filter which
+	 * rejects every bid scans the utilities alone. The order of the bids is
+	 * the same for every call with the same range, but need not be on
+	 * descending utility.
+	 */
+	void forEachInRange(double lower, double upper, DoublePredicate filter, Consumer<BidDetails> action);
+}
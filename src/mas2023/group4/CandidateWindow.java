@@ -0,0 +1,177 @@
+package mas2023.group4;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.OutcomeSpace;
+import genius.core.misc.Range;
+
+/**
+ * Chooses the candidate bids of a round for an OM strategy: the bids with a
+ * utility in [goal, goal + tolerance]. The tolerance is carried over between
+ * rounds and adjusted every round, halving it while the window holds more
+ * than maxCandidates bids and doubling it while it holds fewer than
+ * minCandidates, so the number of candidates stays within the budget
+ * whatever the density of the domain.
+ *
+ * Counting is cheap on a {@link CandidateSource}. The utilities of the window
+ * are streamed through a bounded heap which selects the maxCandidates bids
+ * nearest to the goal, and a second pass over the window only decodes the
+ * selected bids, so a window which cannot be narrowed enough (for instance
+ * because many bids have the same utility) is never built as a whole.
+ */
+public class CandidateWindow {
+
+	private static final double MIN_TOLERANCE = 1e-6;
+	/** A window of this width holds every bid above the goal */
+	private static final double MAX_TOLERANCE = 2;
+
+	private final int minCandidates;
+	private final int maxCandidates;
+	private double tolerance;
+
+	/** Bounded max-heap on (distance to the goal, arrival) of the selected bids */
+	private final double[] distances;
+	private final long[] arrivals;
+	private int size;
+	private long arrived;
+	private double goal;
+
+	public CandidateWindow(int minCandidates, int maxCandidates, double initialTolerance) {
+		this.minCandidates = Math.max(1, minCandidates);
+		this.maxCandidates = Math.max(this.minCandidates, maxCandidates);
+		this.tolerance = initialTolerance;
+		distances = new double[this.maxCandidates];
+		arrivals = new long[this.maxCandidates];
+	}
+
+	public double getTolerance() {
+		return tolerance;
+	}
+
+	/**
+	 * @return at most maxCandidates bids with a utility of at least the goal,
+	 *         nearest to the goal, on descending utility. The list is empty if
+	 *         there are no bids above the goal.
+	 */
+	public List<BidDetails> getCandidates(OutcomeSpace space, double goal) {
+		int count = count(space, goal, tolerance);
+		if (count > maxCandidates) {
+			double wider = tolerance;
+			while (count > maxCandidates && tolerance > MIN_TOLERANCE) {
+				wider = tolerance;
+				tolerance = Math.max(MIN_TOLERANCE, tolerance / 2);
+				count = count(space, goal, tolerance);
+			}
+			if (count < minCandidates) {
+				// halving skipped the budget, the heap cuts the wider window down
+				tolerance = wider;
+			}
+		} else {
+			while (count < minCandidates && tolerance < MAX_TOLERANCE) {
+				tolerance = Math.min(MAX_TOLERANCE, tolerance * 2);
+				count = count(space, goal, tolerance);
+			}
+		}
+
+		this.goal = goal;
+		size = 0;
+		arrived = 0;
+		double upper = goal + tolerance;
+		List<BidDetails> candidates = new ArrayList<BidDetails>(Math.min(count, maxCandidates));
+		if (space instanceof CandidateSource) {
+			CandidateSource source = (CandidateSource) space;
+			// select on the utilities alone, then decode the selected bids only
+			source.forEachInRange(goal, upper, utility -> {
+				select(utility);
+				return false;
+			}, bid -> {});
+			arrived = 0;
+			source.forEachInRange(goal, upper, this::isSelected, candidates::add);
+			// a source need not stream on descending utility
+			candidates.sort((x, y) -> Double.compare(y.getMyUndiscountedUtil(), x.getMyUndiscountedUtil()));
+		} else {
+			List<BidDetails> bids = space.getBidsinRange(new Range(goal, upper));
+			for (BidDetails bid : bids) {
+				select(bid.getMyUndiscountedUtil());
+			}
+			arrived = 0;
+			for (BidDetails bid : bids) {
+				if (isSelected(bid.getMyUndiscountedUtil())) {
+					candidates.add(bid);
+				}
+			}
+		}
+		return candidates;
+	}
+
+	private static int count(OutcomeSpace space, double goal, double tolerance) {
+		if (space instanceof CandidateSource) {
+			return ((CandidateSource) space).countInRange(goal, goal + tolerance);
+		}
+		return space.getBidsinRange(new Range(goal, goal + tolerance)).size();
+	}
+
+	/**
+	 * Adds the next bid of the window to the heap if it is among the
+	 * maxCandidates nearest bids so far; of bids at the same distance the
+	 * first ones are kept.
+	 */
+	private void select(double utility) {
+		double distance = Math.abs(utility - goal);
+		long arrival = arrived++;
+		if (size < distances.length) {
+			int k = size++;
+			// sift up
+			while (k > 0) {
+				int parent = (k - 1) / 2;
+				if (!greater(distance, arrival, distances[parent], arrivals[parent])) {
+					break;
+				}
+				set(k, distances[parent], arrivals[parent]);
+				k = parent;
+			}
+			set(k, distance, arrival);
+		} else if (greater(distances[0], arrivals[0], distance, arrival)) {
+			// replace the farthest bid and sift down
+			int k = 0;
+			while (true) {
+				int child = 2 * k + 1;
+				if (child >= size) {
+					break;
+				}
+				if (child + 1 < size && greater(distances[child + 1], arrivals[child + 1], distances[child],
+						arrivals[child])) {
+					child++;
+				}
+				if (!greater(distances[child], arrivals[child], distance, arrival)) {
+					break;
+				}
+				set(k, distances[child], arrivals[child]);
+				k = child;
+			}
+			set(k, distance, arrival);
+		}
+	}
+
+	/**
+	 * @return true if the next bid of the window, in the same order as the
+	 *         selection, is one of the selected bids, which are those not
+	 *         farther than the farthest bid left in the heap.
+	 */
+	private boolean isSelected(double utility) {
+		double distance = Math.abs(utility - goal);
+		long arrival = arrived++;
+		return size < distances.length || !greater(distance, arrival, distances[0], arrivals[0]);
+	}
+
+	private static boolean greater(double distance, long arrival, double otherDistance, long otherArrival) {
+		return distance > otherDistance || (distance == otherDistance && arrival > otherArrival);
+	}
+
+	private void set(int k, double distance, long arrival) {
+		distances[k] = distance;
+		arrivals[k] = arrival;
+	}
+}
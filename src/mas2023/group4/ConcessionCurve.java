@@ -0,0 +1,87 @@
+package mas2023.group4;
+
+import genius.core.timeline.TimeLineInfo;
+import genius.core.timeline.Timeline;
+
+/**
+ * Precomputed target utility curve of a time dependent strategy.
+ *
+ * On a round based deadline the normalized time can only take the values
+ * round / totalRounds, so the curve is evaluated once per round at
+ * construction and looked up from a table. On a continuous deadline the
+ * curve is sampled on a fixed grid and linearly interpolated, and the last
+ * lookup is cached since the acceptance and bidding strategy query the same
+ * time within a round.
+ */
+public class ConcessionCurve implements TargetUtilityCurve {
+
+	/** Number of grid intervals for continuous timelines */
+	private static final int RESOLUTION = 1000;
+
+	private final TargetUtilityCurve exact;
+	/** Round deadline: the time and target utility of every round, else null */
+	private final double[] roundTimes;
+	private final double[] roundTargets;
+	/** Continuous deadline: the target utility at i / RESOLUTION, else null */
+	private final double[] grid;
+
+	private double lastTime = Double.NaN;
+	private double lastTarget;
+
+	/**
+	 * @param exact
+	 *            the curve to precompute, used directly for times which are
+	 *            not in the table.
+	 * @param timeline
+	 *            the timeline of the session, or null to use a continuous
+	 *            grid.
+	 */
+	public ConcessionCurve(TargetUtilityCurve exact, TimeLineInfo timeline) {
+		this.exact = exact;
+		if (timeline != null && timeline.getType() == Timeline.Type.Rounds) {
+			int totalRounds = (int) timeline.getTotalTime();
+			roundTimes = new double[totalRounds + 1];
+			roundTargets = new double[totalRounds + 1];
+			for (int round = 0; round <= totalRounds; round++) {
+				roundTimes[round] = (double) round / (double) totalRounds;
+				roundTargets[round] = exact.getTargetUtility(roundTimes[round]);
+			}
+			grid = null;
+		} else {
+			roundTimes = null;
+			roundTargets = null;
+			grid = new double[RESOLUTION + 1];
+			for (int i = 0; i <= RESOLUTION; i++) {
+				grid[i] = exact.getTargetUtility((double) i / RESOLUTION);
+				if (Double.isNaN(grid[i]) && i > 0) {
+					// the curve is undefined at the deadline itself; take its limit
+					grid[i] = grid[i - 1];
+				}
+			}
+		}
+	}
+
+	@Override
+	public double getTargetUtility(double time) {
+		if (time == lastTime) {
+			return lastTarget;
+		}
+		double target;
+		if (roundTimes != null) {
+			int round = (int) Math.round(time * (roundTimes.length - 1));
+			if (round >= 0 && round < roundTimes.length && roundTimes[round] == time) {
+				target = roundTargets[round];
+			} else {
+				target = exact.getTargetUtility(time);
+			}
+		} else {
+			double position = Math.min(1, Math.max(0, time)) * RESOLUTION;
+			int i = Math.min(RESOLUTION - 1, (int) position);
+			double fraction = position - i;
+			target = grid[i] + (grid[i + 1] - grid[i]) * fraction;
+		}
+		lastTime = time;
+		lastTarget = target;
+		return target;
+	}
+}
@@ -0,0 +1,278 @@
+package mas2023.group4;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import genius.core.Domain;
+import genius.core.boaframework.OutcomeSpace;
+import genius.core.boaframework.SortedOutcomeSpace;
+import genius.core.issue.Issue;
+import genius.core.issue.IssueDiscrete;
+import genius.core.issue.ValueDiscrete;
+import genius.core.utility.AbstractUtilitySpace;
+import genius.core.utility.AdditiveUtilitySpace;
+
+/**
+ * Process wide pool of the read-only structures of the domains and profiles
+ * which are negotiated, so that the sessions of a tournament which run the
+ * same scenario, one after the other or in parallel, build them once:
+ * <ul>
+ * <li>the {@link BidCodec} of a domain;
+ * <li>the {@link LazyOutcomeSpace.Index} of a profile, including its cache
+ * of materialized bands;
+ * <li>the memory-mapped {@link MappedOutcomeSpace.Index} of a profile;
+ * <li>the SortedOutcomeSpace of a profile which is read from a file.
+ * </ul>
+ * A domain or profile is identified by its contents rather than by the
+ * instance, since every session normally parses its own copy.
+ *
+ * The structures are reference counted. A reference is released explicitly,
+ * or else when the component it was bound to is garbage collected, and a
+ * structure is dropped from the pool when its last reference is released.
+ */
+public class DomainPool {
+
+	private static final Cleaner CLEANER = Cleaner.create();
+	private static final Map<Object, Entry> ENTRIES = new HashMap<Object, Entry>();
+
+	private static class Entry {
+
+		final Object value;
+		int references;
+
+		Entry(Object value) {
+			this.value = value;
+		}
+	}
+
+	/**
+	 * A counted reference to a pooled structure.
+	 */
+	public static class Reference<T> {
+
+		private final Object key;
+		private final T value;
+		private Cleaner.Cleanable cleanable;
+		private boolean released;
+
+		Reference(Object key, T value) {
+			this.key = key;
+			this.value = value;
+		}
+
+		public T get() {
+			return value;
+		}
+
+		/**
+		 * Releases the reference once the owner is garbage collected, if it
+		 * was not released before.
+		 */
+		public synchronized void bind(Object owner) {
+			if (cleanable == null && !released) {
+				Object k = key;
+				cleanable = CLEANER.register(owner, () -> DomainPool.release(k));
+			}
+		}
+
+		public synchronized void release() {
+			if (released) {
+				return;
+			}
+			released = true;
+			if (cleanable != null) {
+				cleanable.clean();
+			} else {
+				DomainPool.release(key);
+			}
+		}
+	}
+
+	/**
+	 * Key of a value which is identified by a domain and an array of numbers
+	 * depending on the profile.
+	 */
+	private static class Key {
+
+		final String kind;
+		final String domain;
+		final Object profile;
+
+		Key(String kind, String domain, Object profile) {
+			this.kind = kind;
+			this.domain = domain;
+			this.profile = profile;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) other;
+			return kind.equals(key.kind) && domain.equals(key.domain)
+					&& Arrays.deepEquals(new Object[] { profile }, new Object[] { key.profile });
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 * kind.hashCode() + domain.hashCode()) + Arrays.deepHashCode(new Object[] { profile });
+		}
+	}
+
+	/**
+	 * @return the codec of the domain, which must have discrete issues only.
+	 */
+	public static Reference<BidCodec> codec(Domain domain) {
+		return acquire(new Key("codec", signature(domain), null), () -> new BidCodec(domain));
+	}
+
+	/**
+	 * @return the index of the lazy outcome space of the utility space, which
+	 *         must be supported by {@link LazyOutcomeSpace}.
+	 */
+	public static Reference<LazyOutcomeSpace.Index> outcomeIndex(AdditiveUtilitySpace utilitySpace) {
+		Reference<BidCodec> codec = codec(utilitySpace.getDomain());
+		try {
+			double[][] table = codec.get().contributions(utilitySpace);
+			// a pooled index keeps the codec it was built with
+			return acquire(new Key("index", signature(utilitySpace.getDomain()), table),
+					() -> new LazyOutcomeSpace.Index(codec.get(), table));
+		} finally {
+			codec.release();
+		}
+	}
+
+	/**
+	 * @return the mapped index of the utility space, which must be supported
+	 *         by {@link MappedOutcomeSpace}. The files are kept in the
+	 *         directory of the system property "outcomeindex", by default
+	 *         group4-outcomes in the temporary directory. If the file is not
+	 *         built yet, it is built first if build is set, or else in the
+	 *         background and null is returned.
+	 */
+	public static Reference<MappedOutcomeSpace.Index> mappedIndex(AdditiveUtilitySpace utilitySpace,
+			boolean build) throws IOException {
+		File dir = new File(System.getProperty("outcomeindex",
+				new File(System.getProperty("java.io.tmpdir"), "group4-outcomes").getPath()));
+		Reference<BidCodec> codec = codec(utilitySpace.getDomain());
+		try {
+			double[][] table = codec.get().contributions(utilitySpace);
+			return acquire(new Key("mapped", signature(utilitySpace.getDomain()), table), () -> {
+				try {
+					return MappedOutcomeSpace.open(dir, codec.get(), table, build);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			codec.release();
+		}
+	}
+
+	/**
+	 * @return the sorted outcome space of the utility space. Only utility
+	 *         spaces which were read from an existing file are shared, keyed
+	 *         by the canonical path, size and modification time of the file;
+	 *         for other spaces the reference holds a new outcome space.
+	 */
+	public static Reference<OutcomeSpace> sortedOutcomeSpace(AbstractUtilitySpace utilitySpace) {
+		String file = fileKey(utilitySpace.getFileName());
+		if (file == null) {
+			return new Reference<OutcomeSpace>(null, new SortedOutcomeSpace(utilitySpace));
+		}
+		return acquire(new Key("sorted", signature(utilitySpace.getDomain()), file),
+				() -> new SortedOutcomeSpace(utilitySpace));
+	}
+
+	/**
+	 * @return the canonical path, size and modification time of the file, so
+	 *         that the same file is recognized through any path and an edited
+	 *         file is not; null if there is no such file.
+	 */
+	private static String fileKey(String fileName) {
+		if (fileName == null) {
+			return null;
+		}
+		File file = new File(fileName);
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			return file.getCanonicalPath() + "|" + file.length() + "|" + file.lastModified();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return the number of structures in the pool.
+	 */
+	public static synchronized int size() {
+		return ENTRIES.size();
+	}
+
+	/**
+	 * Returns a reference to the pooled value of the key, creating the value
+	 * if it is not in the pool. The value is created outside of the lock, so
+	 * two sessions may build the same structure at the same time; only the
+	 * first one is kept. Returns null if the factory returns null.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> Reference<T> acquire(Object key, Supplier<T> factory) {
+		synchronized (DomainPool.class) {
+			Entry entry = ENTRIES.get(key);
+			if (entry != null) {
+				entry.references++;
+				return new Reference<T>(key, (T) entry.value);
+			}
+		}
+		T value = factory.get();
+		if (value == null) {
+			return null;
+		}
+		synchronized (DomainPool.class) {
+			Entry entry = ENTRIES.get(key);
+			if (entry == null) {
+				entry = new Entry(value);
+				ENTRIES.put(key, entry);
+			}
+			entry.references++;
+			return new Reference<T>(key, (T) entry.value);
+		}
+	}
+
+	private static synchronized void release(Object key) {
+		if (key == null) {
+			return;
+		}
+		Entry entry = ENTRIES.get(key);
+		if (entry != null && --entry.references == 0) {
+			ENTRIES.remove(key);
+		}
+	}
+
+	/**
+	 * @return a string identifying the domain by its name, issues and values.
+	 */
+	static String signature(Domain domain) {
+		StringBuilder signature = new StringBuilder(String.valueOf(domain.getName()));
+		for (Issue issue : domain.getIssues()) {
+			signature.append('\n').append(issue.getNumber()).append(':').append(issue.getName());
+			if (issue instanceof IssueDiscrete) {
+				for (ValueDiscrete value : ((IssueDiscrete) issue).getValues()) {
+					signature.append('\t').append(value.getValue());
+				}
+			}
+		}
+		return signature.toString();
+	}
+}
@@ -0,0 +1,150 @@
+package mas2023.group4;
+
+import java.util.List;
+
+import genius.core.bidding.BidDetails;
+
+/**
+ * Sliding window over the encoded bids of the opponent, as used by
+ * {@link Group4_OM}. With numberOfRounds = R and h bids received, it keeps
+ * <ul>
+ * <li>the number of times every value occurs in the last R - 1 bids, and
+ * <li>the number of times every value occurs in the bids which are compared
+ * to the last bid, i.e. the bids h - 2 down to max(1, h - R).
+ * </ul>
+ * Both are updated when a bid enters or leaves the window, so adding a bid
+ * costs O(issues) instead of rescanning the history. The number of unchanged
+ * issues between the last bid and the compared bids follows from the second
+ * count in O(issues).
+ */
+public class FrequencyWindow {
+
+	private final BidCodec codec;
+	private final int numberOfRounds;
+	/** The last R + 1 bids; bid h is stored at h % ring.length */
+	private final int[][] ring;
+	/** Number of bids added, i.e. the history index of the next bid */
+	private int size;
+	/** Per issue and value, the occurrences in the last R - 1 bids */
+	private final int[][] valueCounts;
+	/** Per issue and value, the occurrences in the compared bids */
+	private final int[][] compareCounts;
+
+	public FrequencyWindow(BidCodec codec, int numberOfRounds) {
+		this.codec = codec;
+		this.numberOfRounds = numberOfRounds;
+		int n = codec.getNumberOfIssues();
+		ring = new int[Math.max(2, numberOfRounds + 1)][n];
+		valueCounts = new int[n][];
+		compareCounts = new int[n][];
+		for (int i = 0; i < n; i++) {
+			valueCounts[i] = new int[codec.getNumberOfValues(i)];
+			compareCounts[i] = new int[codec.getNumberOfValues(i)];
+		}
+	}
+
+	/**
+	 * Adds the bids of the history which were not added yet.
+	 */
+	public void sync(List<BidDetails> history) {
+		while (size < history.size()) {
+			add(history.get(size));
+		}
+	}
+
+	/**
+	 * Adds the next bid of the opponent and slides both windows.
+	 */
+	public void add(BidDetails bid) {
+		int h = size + 1;
+		int[] code = ring[size % ring.length];
+		codec.encode(bid.getBid(), code);
+		size = h;
+		if (numberOfRounds < 2) {
+			return;
+		}
+
+		// the last R - 1 bids are the bids h - R + 1 .. h - 1
+		count(valueCounts, h - 1, 1);
+		if (h - numberOfRounds >= 0) {
+			count(valueCounts, h - numberOfRounds, -1);
+		}
+		// the compared bids are max(1, h - R) .. h - 2
+		if (h - 2 >= 1) {
+			count(compareCounts, h - 2, 1);
+		}
+		if (h - 1 - numberOfRounds >= 1) {
+			count(compareCounts, h - 1 - numberOfRounds, -1);
+		}
+	}
+
+	private void count(int[][] counts, int index, int delta) {
+		int[] code = bidAt(index);
+		for (int i = 0; i < code.length; i++) {
+			if (code[i] >= 0) {
+				counts[i][code[i]] += delta;
+			}
+		}
+	}
+
+	private int[] bidAt(int index) {
+		return ring[index % ring.length];
+	}
+
+	/**
+	 * @return the number of bids added to the window.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the last bid of the opponent, encoded.
+	 */
+	public int[] getLastBid() {
+		return bidAt(size - 1);
+	}
+
+	/**
+	 * @return the number of bids which are compared to the last bid.
+	 */
+	public int getNumberOfCompared() {
+		return Math.max(0, size - 2 - Math.max(1, size - numberOfRounds) + 1);
+	}
+
+	/**
+	 * @param round
+	 *            1 for the bid before the last bid, 2 for the one before
+	 *            that, up to getNumberOfCompared().
+	 * @return 1 if the value of the issue differs between the given bid and
+	 *         the last bid, else 0.
+	 */
+	public int changed(int round, int issue) {
+		return bidAt(size - 1 - round)[issue] == getLastBid()[issue] ? 0 : 1;
+	}
+
+	/**
+	 * @return the number of (compared bid, issue) pairs of which the value
+	 *         equals the value in the last bid.
+	 */
+	public int getNumberOfUnchanged() {
+		if (getNumberOfCompared() == 0) {
+			return 0;
+		}
+		int[] last = getLastBid();
+		int unchanged = 0;
+		for (int i = 0; i < last.length; i++) {
+			if (last[i] >= 0) {
+				unchanged += compareCounts[i][last[i]];
+			}
+		}
+		return unchanged;
+	}
+
+	/**
+	 * @return how often the value occurs in the last numberOfRounds - 1 bids.
+	 */
+	public int getCount(int issue, int value) {
+		return valueCounts[issue][value];
+	}
+}
@@ -34,6 +34,16 @@ public class Group4_AS extends AcceptanceStrategy {
 	 * Time factor T, to determine when to totally surrender
 	 */
 	double T = 1.0; // Never surrender by default
+	/**
+	 * Target utility curve of the bidding strategy, bound at init
+	 */
+	private TargetUtilityCurve targetCurve;
+	/**
+	 * Time of the last threshold lookup and the threshold at that time; the
+	 * time only changes once per timeline step
+	 */
+	private double thresholdTime = Double.NaN;
+	private double threshold;
 
 	/**
 	 * Empty constructor for the BOA framework.
@@ -48,6 +58,9 @@ public class Group4_AS extends AcceptanceStrategy {
 		this.a = alpha;
 		this.b = beta;
 		this.t_WaitAndSee = 0;
+		if (strat instanceof TargetUtilityCurve) {
+			this.targetCurve = (TargetUtilityCurve) strat;
+		}
 	}
 
 	@Override
@@ -56,6 +69,12 @@ public class Group4_AS extends AcceptanceStrategy {
 			throws Exception {
 		this.negotiationSession = negoSession;
 		this.offeringStrategy = strat;
+		if (strat instanceof TargetUtilityCurve) {
+			targetCurve = (TargetUtilityCurve) strat;
+		} else {
+			throw new Exception("The offeringStrategy passed to AS should provide " +
+					"a target utility curve, such as \"Group4_BS\".");
+		}
 
 		if (parameters.get("T") != null){
 			T = parameters.get("T");
@@ -79,6 +98,12 @@ public class Group4_AS extends AcceptanceStrategy {
 
 	@Override
 	public Actions determineAcceptability() {
+		double time = negotiationSession.getTime();
+		// Time is running out. Accept anyway.
+		if (time > T){
+			return Actions.Accept;
+		}
+
 		double nextMyBidUtil = offeringStrategy.getNextBid()
 				.getMyUndiscountedUtil();
 		double lastOpponentBidUtil = negotiationSession.getOpponentBidHistory()
@@ -87,25 +112,13 @@ public class Group4_AS extends AcceptanceStrategy {
 		double utilityDifference = nextMyBidUtil - (a * lastOpponentBidUtil + b);
 
 		// Calculate the minimal acceptable utility i.e. the target utility for now
-		double time = negotiationSession.getTime();
-		double myUtilThreshold = 0.8;
-		if (offeringStrategy instanceof Group4_BS){
-			Group4_BS BS = (Group4_BS) offeringStrategy;
-			myUtilThreshold = BS.p(time);
-		}else {
-			throw new ClassCastException("The offeringStrategy class passed to AS " +
-					"can't be downcast to \"Group4_BS\".");
-		}
+		double myUtilThreshold = getThreshold(time);
 
 		int numberOfRounds = negotiationSession.getOpponentBidHistory().size();
 
 		//judge opponent is greedy(1) or cooperative(0)
 		boolean isOpponentGreedy = true; // opponentModel.isGreedy();
 
-		// Time is running out. Accept anyway.
-		if (time > T){
-			return Actions.Accept;
-		}
 		// Accept the offer if the opponent's utility is higher than my next offer
 		if (utilityDifference <= 0) {
 			return Actions.Accept;
@@ -126,6 +139,17 @@ public class Group4_AS extends AcceptanceStrategy {
 
 	}
 
+	/**
+	 * @return the target utility of the bidding strategy at the given time,
+	 *         memoized for the current timeline step.
+	 */
+	private double getThreshold(double time) {
+		if (time != thresholdTime) {
+			threshold = targetCurve.getTargetUtility(time);
+			thresholdTime = time;
+		}
+		return threshold;
+	}
 
 	@Override
 	public Set<BOAparameter> getParameterSpec() {
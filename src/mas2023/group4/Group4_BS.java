@@ -1,6 +1,8 @@
 package mas2023.group4;
 
+import java.io.IOException;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -11,7 +13,10 @@ import genius.core.boaframework.NoModel;
 import genius.core.boaframework.OMStrategy;
 import genius.core.boaframework.OfferingStrategy;
 import genius.core.boaframework.OpponentModel;
+import genius.core.boaframework.OutcomeSpace;
 import genius.core.boaframework.SortedOutcomeSpace;
+import genius.core.misc.Range;
+import genius.core.utility.AdditiveUtilitySpace;
 
 /**
  * This is an abstract class used to implement a TimeDependentAgent Strategy
@@ -21,7 +26,7 @@ import genius.core.boaframework.SortedOutcomeSpace;
  * 
  * The default strategy was extended to enable the usage of opponent models.
  */
-public class Group4_BS extends OfferingStrategy {
+public class Group4_BS extends OfferingStrategy implements TargetUtilityCurve {
 
 	/**
 	 * k in [0, 1]. For k = 0.2 the agent starts with a bid
@@ -36,8 +41,22 @@ public class Group4_BS extends OfferingStrategy {
 	private double e;
 	/** The specified ratio factor to start the next stage of f(t) */
 	private double a;
+	/**
+	 * Bidding mode: 0 lets the OM strategy pick from the bids near the target
+	 * utility, 1 offers the bid on the estimated Pareto frontier at the target
+	 * utility, if the opponent model is Group4_OM.
+	 */
+	private int mode;
+	/** Initial width of the utility window handed to the OM strategy */
+	private static final double INITIAL_WINDOW_RANGE = 0.01;
+	/** Number of bids the window is widened to, as in OMStrategy */
+	private static final int EXPECTED_BIDS_IN_WINDOW = 100;
+	/** Step by which the window is widened, as in OMStrategy */
+	private static final double RANGE_INCREMENT = 0.01;
 	/** Outcome space */
-	private SortedOutcomeSpace outcomespace;
+	private OutcomeSpace outcomespace;
+	/** Precomputed p(t), shared with the acceptance strategy */
+	private ConcessionCurve concessionCurve;
 
 
 
@@ -53,7 +72,27 @@ public class Group4_BS extends OfferingStrategy {
 			//初始化谈判session，获得outcome space和自己的utility space等信息
 			this.negotiationSession = negoSession;
 			//根据utility把outcome space里的出价排序
-			outcomespace = new SortedOutcomeSpace(negotiationSession.getUtilitySpace());
+			//additive spaces with discrete issues are sorted once into a memory-mapped file, or indexed lazily if they are too large
+			//or while the file is built in the background
+			//the read-only part of the outcome space is shared with the other sessions of the same profile
+			if (LazyOutcomeSpace.supports(negotiationSession.getUtilitySpace())) {
+				AdditiveUtilitySpace utilitySpace = (AdditiveUtilitySpace) negotiationSession.getUtilitySpace();
+				outcomespace = null;
+				if (MappedOutcomeSpace.supports(utilitySpace)) {
+					try {
+						outcomespace = MappedOutcomeSpace.ifBuilt(utilitySpace);
+					} catch (IOException ex) {
+						ex.printStackTrace();
+					}
+				}
+				if (outcomespace == null)
+					outcomespace = new LazyOutcomeSpace(utilitySpace);
+			} else {
+				DomainPool.Reference<OutcomeSpace> sorted = DomainPool
+						.sortedOutcomeSpace(negotiationSession.getUtilitySpace());
+				sorted.bind(this);
+				outcomespace = sorted.get();
+			}
 			//将有序化的outcome space载入谈判session
 			negotiationSession.setOutcomeSpace(outcomespace);
 
@@ -77,9 +116,16 @@ public class Group4_BS extends OfferingStrategy {
 				Pmax = maxBid.getMyUndiscountedUtil();
 			}
 
+			if (parameters.get("mode") != null)
+				this.mode = parameters.get("mode").intValue();
+			else
+				this.mode = 0;
+
 			this.opponentModel = model;
 			
 			this.omStrategy = oms;
+
+			concessionCurve = new ConcessionCurve(this::p, negoSession.getTimeline());
 		} else {
 			throw new Exception("Constant \"e\" for the concession speed and " +
 					"constant \"a\" for the turning point of f(t) should be set.");
@@ -102,7 +148,7 @@ public class Group4_BS extends OfferingStrategy {
 
 		double time = negotiationSession.getTime();
 		double utilityGoal;
-		utilityGoal = p(time);
+		utilityGoal = concessionCurve.getTargetUtility(time);
 
 		// System.out.println("[e=" + e + ", Pmin = " +
 		// BilateralAgent.round2(Pmin) + "] t = " + BilateralAgent.round2(time)
@@ -111,16 +157,52 @@ public class Group4_BS extends OfferingStrategy {
 		// if there is no opponent model available
 		if (opponentModel instanceof NoModel) {
 			nextBid = negotiationSession.getOutcomeSpace().getBidNearUtility(utilityGoal);
+		} else if (mode == 1 && opponentModel instanceof Group4_OM
+				&& ((Group4_OM) opponentModel).getFrontier() != null) {
+			// the bid which is best for the opponent among the bids that reach the target
+			nextBid = ((Group4_OM) opponentModel).getFrontier().getBidAtLeast(utilityGoal);
 		} else {
 			// 考虑根据对手的行为模式来选择不同的出价策略，greedy或者cooperative
 			// 只考虑自己的utility target
 			//if(opponentModel.isGreedy())
-			nextBid = omStrategy.getBid(outcomespace, utilityGoal);
+			nextBid = getBidFromOMStrategy(utilityGoal);
 			//else if
 		}
 		return nextBid;
 	}
 
+	/**
+	 * Hands the bids near the target utility to the OM strategy. Group4_OMS
+	 * sizes the window itself (see {@link CandidateWindow}); any other OM
+	 * strategy gets the window of OMStrategy.getBid(SortedOutcomeSpace,
+	 * double), which is widened until it holds EXPECTED_BIDS_IN_WINDOW bids.
+	 */
+	private BidDetails getBidFromOMStrategy(double utilityGoal) {
+		if (omStrategy instanceof Group4_OMS) {
+			return omStrategy.getBid(outcomespace, new Range(utilityGoal, utilityGoal + INITIAL_WINDOW_RANGE));
+		}
+		if (outcomespace instanceof SortedOutcomeSpace) {
+			return omStrategy.getBid((SortedOutcomeSpace) outcomespace, utilityGoal);
+		}
+		Range range = new Range(utilityGoal, utilityGoal + INITIAL_WINDOW_RANGE);
+		while (count(range) < EXPECTED_BIDS_IN_WINDOW && range.getUpperbound() < 1.01) {
+			range.setUpperbound(range.getUpperbound() + RANGE_INCREMENT);
+		}
+		List<BidDetails> bids = outcomespace.getBidsinRange(range);
+		if (bids.isEmpty()) {
+			// no bid reaches the target utility
+			return outcomespace.getBidNearUtility(utilityGoal);
+		}
+		return omStrategy.getBid(bids);
+	}
+
+	private int count(Range range) {
+		if (outcomespace instanceof CandidateSource) {
+			return ((CandidateSource) outcomespace).countInRange(range.getLowerbound(), range.getUpperbound());
+		}
+		return outcomespace.getBidsinRange(range).size();
+	}
+
 	/**
 	 * From [1]:
 	 * 
@@ -160,6 +242,18 @@ public class Group4_BS extends OfferingStrategy {
 		return Pmin + (Pmax - Pmin) * (1 - f(t));
 	}
 
+	@Override
+	public double getTargetUtility(double time) {
+		return concessionCurve.getTargetUtility(time);
+	}
+
+	/**
+	 * @return the precomputed target utility curve p(t) of this strategy.
+	 */
+	public ConcessionCurve getConcessionCurve() {
+		return concessionCurve;
+	}
+
 	public NegotiationSession getNegotiationSession() {
 		return negotiationSession;
 	}
@@ -172,6 +266,7 @@ public class Group4_BS extends OfferingStrategy {
 		set.add(new BOAparameter("min", 0.0, "Minimum utility"));
 		set.add(new BOAparameter("max", 0.99, "Maximum utility"));
 		set.add(new BOAparameter("a", 0.0, "turning point of f(t)"));
+		set.add(new BOAparameter("mode", 0.0, "Bidding mode: 0 for the OM strategy, 1 for the estimated Pareto frontier"));
 		// might need to change the default value a little bit
 
 		return set;
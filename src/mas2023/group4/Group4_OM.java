@@ -4,15 +4,13 @@ import java.util.*;
 import java.util.Map.Entry;
 
 import genius.core.Bid;
-import genius.core.bidding.BidDetails;
+import genius.core.Domain;
 import genius.core.boaframework.BOAparameter;
 import genius.core.boaframework.NegotiationSession;
 import genius.core.boaframework.OpponentModel;
 import genius.core.issue.Issue;
-import genius.core.issue.IssueDiscrete;
 import genius.core.issue.Objective;
-import genius.core.issue.Value;
-import genius.core.issue.ValueDiscrete;
+import genius.core.utility.AbstractUtilitySpace;
 import genius.core.utility.AdditiveUtilitySpace;
 import genius.core.utility.Evaluator;
 import genius.core.utility.EvaluatorDiscrete;
@@ -49,6 +47,30 @@ public class Group4_OM extends OpponentModel {
 	 */
 	private double numberOfRounds;
 	// numberOfRounds is the number of previous rounds to consider.
+	/** Encoding of the opponent's bids, one value index per issue */
+	private BidCodec codec;
+	/** Running issue changes and value counts over the last numberOfRounds bids */
+	private FrequencyWindow window;
+	/** Learned issue weights, in the order of the codec */
+	private double[] weights;
+	/**
+	 * The issues in the order in which the weights are updated: the order of
+	 * a HashMap keyed on the issue numbers, as in determineDifference
+	 */
+	private int[] issueOrder;
+	/** Correction of AdditiveUtilitySpace.normalizeChildren */
+	private static final double RENORMALCORR = 0.05;
+	/** Learned (not normalized) value evaluations, indexed like the codec */
+	private int[][] evaluations;
+	/** weight * normalized evaluation per issue value, null if outdated */
+	private double[][] table;
+	/** Whether the model has been written to the opponentUtilitySpace */
+	private boolean published;
+	private int[] encodedBid;
+	/** Estimated Pareto frontier, created when it is first asked for */
+	private ParetoFrontier frontier;
+	/** The table of which the frontier was last updated */
+	private double[][] frontierTable;
 
 	@Override
 	public void init(NegotiationSession negotiationSession,
@@ -83,9 +105,14 @@ public class Group4_OM extends OpponentModel {
 		 * will consider the previous three rounds of the opponent's bid history.
 		 */
 		learnValueAddition = 1;
-		opponentUtilitySpace = (AdditiveUtilitySpace) negotiationSession
-				.getUtilitySpace().copy();
-		amountOfIssues = opponentUtilitySpace.getDomain().getIssues().size();
+		/*
+		 * The opponentUtilitySpace is only built when it is asked for, since
+		 * the model itself works on the codec; the codec is shared with the
+		 * other sessions in the same domain.
+		 */
+		opponentUtilitySpace = null;
+		Domain domain = negotiationSession.getUtilitySpace().getDomain();
+		amountOfIssues = domain.getIssues().size();
 		/*
 		 * This is the value to be added to weights of unchanged issues before
 		 * normalization. Also the value that is taken as the minimum possible
@@ -93,13 +120,42 @@ public class Group4_OM extends OpponentModel {
 		 */
 		goldenValue = learnCoef / amountOfIssues;
 
+		DomainPool.Reference<BidCodec> reference = DomainPool.codec(domain);
+		reference.bind(this);
+		codec = reference.get();
+		window = new FrequencyWindow(codec, (int) numberOfRounds);
+		weights = new double[amountOfIssues];
+		HashMap<Integer, Integer> issueIndices = new HashMap<Integer, Integer>();
+		for (int i = 0; i < amountOfIssues; i++) {
+			issueIndices.put(codec.getIssueNumber(i), i);
+		}
+		issueOrder = new int[amountOfIssues];
+		int position = 0;
+		for (int i : issueIndices.values()) {
+			issueOrder[position++] = i;
+		}
+		evaluations = new int[amountOfIssues][];
+		for (int i = 0; i < amountOfIssues; i++) {
+			evaluations[i] = new int[codec.getNumberOfValues(i)];
+		}
+		encodedBid = new int[amountOfIssues];
+		table = null;
+		frontier = null;
+		frontierTable = null;
+
 		initializeModel();
 
 	}
 
 	@Override
 	public void updateModel(Bid opponentBid, double time) {
-		int historySize = negotiationSession.getOpponentBidHistory().size();
+		window.sync(negotiationSession.getOpponentBidHistory().getHistory());
+		/*
+		 * Slide the frequency window over the opponent's bids which arrived
+		 * since the last call, which costs O(issues) per bid.
+		 */
+
+		int historySize = window.size();
 		//Assign the size of OpponentBidHistory to historySize
 
 		if (historySize < roundToUpdate) {
@@ -110,116 +166,210 @@ public class Group4_OM extends OpponentModel {
 		 * without considering the opponent's bid history.
 		 */
 
-		int numberOfUnchanged = 0;
-		ArrayList<HashMap<Integer, Integer>> diffs = new ArrayList<>();
-
-		for (int i = 1; i <= numberOfRounds - 1; i++) {
-
-			int previousRoundIndex = historySize - 1 ;
-			//  previousRoundIndex is the opponent's last offer round
-			int prevPreviousRoundIndex = historySize - 1 - i;
-			// prePreviousRoundIndex is the opponent's previous last offer round
+		int numberOfUnchanged = window.getNumberOfUnchanged();
+		/*
+		 * The bids h - 2 down to max(1, h - numberOfRounds) are compared to the
+		 * opponent's last bid; an issue of which the value did not change in
+		 * such a pair counts as unchanged.
+		 */
 
-			if (prevPreviousRoundIndex <= 0) {
-				break;
+		double totalSum = 1D + goldenValue * numberOfUnchanged;
+		for (int round = 1; round <= window.getNumberOfCompared(); round++) {
+			for (int i : issueOrder) {
+				setWeight(i, (weights[i] + goldenValue * window.changed(round, i)) / totalSum);
+				normalizeWeights();
 			}
-			/*
-			 * Cycle through every two similar rounds and ensure that round 0
-			 * and negative rounds are not indexed.
-			 */
-
-			BidDetails previousOppBid = negotiationSession.getOpponentBidHistory()
-					.getHistory()
-					.get(previousRoundIndex);
-			/*
-			 * Get the previous round's bid from the opponent's bid history
-			 * and assign it to previousOppBid.
-			 */
-			BidDetails prevPreviousOppBid = negotiationSession.getOpponentBidHistory()
-					.getHistory()
-					.get(prevPreviousRoundIndex);
-			/*
-			 * Get the previous previous round's bid from the opponent's bid history
-			 * and assign it to prevPreviousOppBid.
-			 */
-			HashMap<Integer, Integer> lastDiffSet = determineDifference(prevPreviousOppBid, previousOppBid);
-			diffs.add(lastDiffSet);
-			/*
-			 * Call the determineDifference method to calculate the difference between
-			 * the previous previous round and the previous bid and assign it to lastDiffSet.
-			 */
 		}
+		published = false;
+		table = null;
 
-		for (HashMap<Integer, Integer> diff : diffs) {
-			for (Integer i : diff.keySet()) {
-				if (diff.get(i) == 0) {
-					numberOfUnchanged++;
-				}
-			}
+		if (historySize < numberOfRounds - 1) {
+			return;
 		}
-		/*
-		 * loop comparison, if diff is 0, it means no change in the previous two offers,
-		 * so numberOfUnchanged + 1
-		 */
 
-		double totalSum = 1D + goldenValue * numberOfUnchanged;
-		for (HashMap<Integer, Integer> diff : diffs) {
-			for (Entry<Integer, Integer> e : diff.entrySet()) {
-				try {
-					int issueNum = e.getKey();
-					double weight = opponentUtilitySpace.getWeight(issueNum);
-					double newWeight = (weight + goldenValue * e.getValue())
-							/ totalSum;
-					Objective issue = opponentUtilitySpace.getDomain()
-							.getObjectivesRoot().getObjective(issueNum);
-					opponentUtilitySpace.setWeight(issue, newWeight);
-					opponentUtilitySpace.normalizeWeights();
-				} catch (Exception ex) {
-					ex.printStackTrace();
+		for (int i = 0; i < amountOfIssues; i++) {
+			int[] evaluation = evaluations[i];
+			int max = max(evaluation);
+			for (int j = 0; j < evaluation.length; j++) {
+				/*
+				 * The previous evaluation is normalized by the current maximum of
+				 * the issue, which changes while the values of the issue are
+				 * updated one by one, as in the evaluators of the utility space.
+				 */
+				double normalized = max > 0 ? evaluation[j] / (double) max : 0;
+				int old = evaluation[j];
+				// the count of the value in the last numberOfRounds - 1 bids
+				evaluation[j] = (int) (normalized + learnValueAddition * window.getCount(i, j));
+				if (evaluation[j] > max) {
+					max = evaluation[j];
+				} else if (old == max && evaluation[j] < old) {
+					max = max(evaluation);
 				}
 			}
 		}
+	}
 
-		try {
-			for (Issue issue : opponentUtilitySpace.getDomain().getIssues()) {
-				int issueNumber = issue.getNumber();
-				IssueDiscrete issueDiscrete = (IssueDiscrete) issue;
-				EvaluatorDiscrete evaluator = (EvaluatorDiscrete) opponentUtilitySpace
-						.getEvaluator(issueNumber);
-
-				for (ValueDiscrete value : issueDiscrete.getValues()) {
-					int lastNumberOfRealBidsWithValue = 0;
-					for (int i = 0; i < numberOfRounds - 1; i++) {
-						BidDetails oppBid = negotiationSession.getOpponentBidHistory()
-								.getHistory()
-								.get(negotiationSession.getOpponentBidHistory().size() - 1 - i);
-						if (oppBid.getBid().getValue(issueNumber).equals(value)) {
-							lastNumberOfRealBidsWithValue++;
-						}
-					}
-
-					int newEvaluation = (int) (evaluator.getEvaluation(value)
-							+ learnValueAddition * lastNumberOfRealBidsWithValue);
-					evaluator.setEvaluation(value, newEvaluation);
-				}
-			}
-		} catch (Exception ex) {
-			ex.printStackTrace();
+	/**
+	 * Sets the weight of an issue like AdditiveUtilitySpace.setWeight: the
+	 * difference of the sum of the weights to 1 is spread over all issues in
+	 * proportion to (weight + RENORMALCORR), negative weights are cut off at
+	 * 0, and the weight of the issue is set back if the sum is then no longer
+	 * within 0.02 of 1.
+	 */
+	private void setWeight(int issue, double weight) {
+		double old = weights[issue];
+		weights[issue] = weight;
+		normalizeWeights();
+		double sum = 0;
+		for (double w : weights) {
+			sum += w;
+		}
+		if (sum <= .98 || sum >= 1.02) {
+			weights[issue] = old;
 		}
 	}
 
+	/**
+	 * Renormalizes the weights like AdditiveUtilitySpace.normalizeChildren,
+	 * which is not a proportional rescale. The result only differs from the
+	 * weights when they do not sum to 1, i.e. after setWeight, or after a
+	 * weight was cut off at 0.
+	 */
+	private void normalizeWeights() {
+		if (amountOfIssues == 1) {
+			weights[0] = 1;
+			return;
+		}
+		double sum = 0;
+		for (double w : weights) {
+			sum += w;
+		}
+		double diff = sum - 1.0;
+		double correctedSum = sum + RENORMALCORR * amountOfIssues;
+		for (int i = 0; i < amountOfIssues; i++) {
+			weights[i] = Math.max(0, weights[i] - diff * (weights[i] + RENORMALCORR) / correctedSum);
+		}
+	}
+
+	private static int max(int[] evaluation) {
+		int max = 0;
+		for (int e : evaluation) {
+			max = Math.max(max, e);
+		}
+		return max;
+	}
+
 
 	@Override
 	public double getBidEvaluation(Bid bid) {
 		double result = 0;
 		try {
-			result = opponentUtilitySpace.getUtility(bid);
+			if (codec.encode(bid, encodedBid)) {
+				result = getBidEvaluation(encodedBid);
+			}
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
 		return result;
 	}
 
+	/**
+	 * Evaluates a bid encoded by {@link #getCodec()} as a sum over the
+	 * lookup table of weight * normalized evaluation.
+	 */
+	public double getBidEvaluation(int[] encodedBid) {
+		return BidCodec.utility(getTable(), encodedBid);
+	}
+
+	/**
+	 * @return the lookup table of the contribution of every issue value to
+	 *         the estimated opponent utility, rebuilt after the model changed.
+	 */
+	public double[][] getTable() {
+		if (table == null) {
+			double[][] t = new double[amountOfIssues][];
+			for (int i = 0; i < amountOfIssues; i++) {
+				int[] evaluation = evaluations[i];
+				int max = max(evaluation);
+				t[i] = new double[evaluation.length];
+				for (int j = 0; j < evaluation.length; j++) {
+					t[i][j] = max > 0 ? weights[i] * evaluation[j] / max : 0;
+				}
+			}
+			table = t;
+		}
+		return table;
+	}
+
+	public BidCodec getCodec() {
+		return codec;
+	}
+
+	/**
+	 * @return the learned, not normalized, evaluation of a value, indexed
+	 *         like the codec.
+	 */
+	int getEvaluation(int issue, int value) {
+		return evaluations[issue][value];
+	}
+
+	/**
+	 * Returns the Pareto frontier over our own utility and the estimated
+	 * opponent utility. The frontier is updated with the table when the model
+	 * changed since the last time, and rebuilt at the next query on it.
+	 *
+	 * @return the frontier, or null if our utility space is not additive
+	 *         with discrete issues.
+	 */
+	public ParetoFrontier getFrontier() {
+		if (frontier == null) {
+			AbstractUtilitySpace utilitySpace = negotiationSession.getUtilitySpace();
+			if (!LazyOutcomeSpace.supports(utilitySpace)) {
+				return null;
+			}
+			frontier = new ParetoFrontier(codec, codec.contributions((AdditiveUtilitySpace) utilitySpace));
+		}
+		double[][] t = getTable();
+		if (t != frontierTable) {
+			frontier.update(t);
+			frontierTable = t;
+		}
+		return frontier;
+	}
+
+	/**
+	 * Returns the estimated utility space of the opponent, including what
+	 * was learned since the last time it was read.
+	 */
+	@Override
+	public AdditiveUtilitySpace getOpponentUtilitySpace() {
+		publishModel();
+		return opponentUtilitySpace;
+	}
+
+	/**
+	 * Writes the learned weights and evaluations to the evaluators of the
+	 * opponentUtilitySpace, if they changed since the last time.
+	 */
+	private void publishModel() {
+		if (opponentUtilitySpace == null) {
+			opponentUtilitySpace = createUtilitySpace();
+			published = false;
+		}
+		if (published) {
+			return;
+		}
+		for (int i = 0; i < amountOfIssues; i++) {
+			EvaluatorDiscrete evaluator = (EvaluatorDiscrete) opponentUtilitySpace
+					.getEvaluator(codec.getIssueNumber(i));
+			evaluator.setWeight(weights[i]);
+			for (int j = 0; j < evaluations[i].length; j++) {
+				evaluator.setEvaluation(codec.getValue(i, j), evaluations[i][j]);
+			}
+		}
+		published = true;
+	}
+
 	@Override
 	public String getName() {
 		return "Group4_OM";
@@ -248,50 +398,37 @@ public class Group4_OM extends OpponentModel {
 	 */
 	private void initializeModel() {
 		double commonWeight = 1D / amountOfIssues;
-
-		for (Entry<Objective, Evaluator> e : opponentUtilitySpace
-				.getEvaluators()) {
-
-			opponentUtilitySpace.unlock(e.getKey());
-			e.getValue().setWeight(commonWeight);
-			try {
-				// set all value weights to one (they are normalized when
-				// calculating the utility)
-				for (ValueDiscrete vd : ((IssueDiscrete) e.getKey())
-						.getValues())
-					((EvaluatorDiscrete) e.getValue()).setEvaluation(vd, 1);
-			} catch (Exception ex) {
-				ex.printStackTrace();
-			}
+		Arrays.fill(weights, commonWeight);
+		for (int[] evaluation : evaluations) {
+			Arrays.fill(evaluation, 1);
 		}
 	}
 
 	/**
-	 * Determines the difference between bids. For each issue, it is determined
-	 * if the value changed. If this is the case, a 1 is stored in a hashmap for
-	 * that issue, else a 0.
-	 *
-	 //	 * @param a
-	 *            bid of the opponent
-	 //	 * @param another
-	 *            bid
-	 * @return
+	 * Creates the opponentUtilitySpace as a copy of our own utility space of
+	 * which the evaluators are unlocked; publishModel overwrites every weight
+	 * and evaluation with the model.
 	 */
-	private HashMap<Integer, Integer> determineDifference(BidDetails first,
-														  BidDetails second) {
+	private AdditiveUtilitySpace createUtilitySpace() {
+		AdditiveUtilitySpace utilitySpace = (AdditiveUtilitySpace) negotiationSession
+				.getUtilitySpace().copy();
+		for (Entry<Objective, Evaluator> e : utilitySpace.getEvaluators()) {
+			utilitySpace.unlock(e.getKey());
+		}
+		return utilitySpace;
+	}
 
-		HashMap<Integer, Integer> diff = new HashMap<Integer, Integer>();
-		try {
-			for (Issue i : opponentUtilitySpace.getDomain().getIssues()) {
-				Value value1 = first.getBid().getValue(i.getNumber());
-				Value value2 = second.getBid().getValue(i.getNumber());
-				diff.put(i.getNumber(), (value1.equals(value2)) ? 0 : 1);
+	/**
+	 * @return the learned weight of the issue.
+	 */
+	@Override
+	public double getWeight(Issue issue) {
+		for (int i = 0; i < amountOfIssues; i++) {
+			if (codec.getIssueNumber(i) == issue.getNumber()) {
+				return weights[i];
 			}
-		} catch (Exception ex) {
-			ex.printStackTrace();
 		}
-
-		return diff;
+		return 0;
 	}
 
 }
@@ -4,7 +4,6 @@ import java.util.List;
 
 import java.util.HashSet;
 import java.util.Map;
-import java.util.Random;
 import java.util.Set;
 
 import genius.core.bidding.BidDetails;
@@ -12,6 +11,8 @@ import genius.core.boaframework.BOAparameter;
 import genius.core.boaframework.NegotiationSession;
 import genius.core.boaframework.OMStrategy;
 import genius.core.boaframework.OpponentModel;
+import genius.core.boaframework.OutcomeSpace;
+import genius.core.misc.Range;
 
 
 
@@ -33,6 +34,24 @@ public class Group4_OMS extends OMStrategy {
 	double updateThreshold = 1.1;
 	double weightAgentUtility = 0.5;
 	double opponentReservationValue = 0.1;
+	/**
+	 * minCandidates, maxCandidates: budget of the number of candidate bids
+	 * scored per round, kept by the candidate window; a factor 4 apart, so
+	 * that halving or doubling the window does not overshoot the budget
+	 */
+	int minCandidates = 50;
+	int maxCandidates = 200;
+	/**
+	 * frontier: whether the bid on the estimated Pareto frontier at the goal
+	 * is added to the candidates, if the model is Group4_OM
+	 */
+	boolean useFrontier = false;
+
+	/** Adjusts the utility window around the goal, created at the first round */
+	private CandidateWindow window;
+
+	/** Scores the candidate bids of a round, reused between rounds */
+	private final CandidateScorer scorer = new CandidateScorer();
 
 
 
@@ -69,6 +88,53 @@ public class Group4_OMS extends OMStrategy {
 		} else {
 //			System.out.println("OMStrategy assumed w = 0.5");
 		}
+
+		if (parameters.get("minCandidates") != null) {
+			minCandidates = parameters.get("minCandidates").intValue();
+		}
+		if (parameters.get("maxCandidates") != null) {
+			maxCandidates = parameters.get("maxCandidates").intValue();
+		}
+		if (parameters.get("frontier") != null) {
+			useFrontier = parameters.get("frontier").doubleValue() != 0;
+		}
+		window = null;
+	}
+
+	/**
+	 * Picks the bid from the candidates near the lower bound of the range,
+	 * the target utility. Instead of widening the given range until it holds
+	 * any bid, the candidate window adjusts its width so that between
+	 * minCandidates and maxCandidates bids are scored. Optionally the bid on
+	 * the estimated Pareto frontier at the target utility is scored as well.
+	 *
+	 * @param space
+	 *            outcome space of the bidding strategy.
+	 * @param range
+	 *            the target utility and the initial width of the window.
+	 * @return bid to be offered to opponent.
+	 */
+	@Override
+	public BidDetails getBid(OutcomeSpace space, Range range) {
+		if (window == null) {
+			window = new CandidateWindow(minCandidates, maxCandidates,
+					range.getUpperbound() - range.getLowerbound());
+		}
+		List<BidDetails> candidates = window.getCandidates(space, range.getLowerbound());
+		if (useFrontier && model instanceof Group4_OM) {
+			ParetoFrontier frontier = ((Group4_OM) model).getFrontier();
+			if (frontier != null) {
+				BidDetails bid = frontier.getBidAtLeast(range.getLowerbound());
+				if (bid.getMyUndiscountedUtil() >= range.getLowerbound()) {
+					candidates.add(bid);
+				}
+			}
+		}
+		if (candidates.isEmpty()) {
+			// no bid reaches the target utility
+			return space.getBidNearUtility(range.getLowerbound());
+		}
+		return getBid(candidates);
 	}
 
 
@@ -93,59 +159,20 @@ public class Group4_OMS extends OMStrategy {
 		}
 
 
-		// Check that not all bids are assigned at utility of 0
-		boolean allWereZero = true;
-
-		// Record the best of the calculated weight score of the bid during the decision process
-		double bestScore = -1;
-		BidDetails bestBid = allBids.get(0);
-
 		// Update the reservation value based on time elapsed to let the agent become more aggressive
 		// 也可以根据OM估算出来的类型，控制保留值递增的速度
 		double currentTime = negotiationSession.getTime();
 		double updatedReservationValue = opponentReservationValue + currentTime * (1.0 - opponentReservationValue);
 
+		// Score all bids in one pass: the score weighs our own utility against the opponent's estimated utility
+		// 也可以根据OM估算出来的类型和时间，动态改变对手和自己的权重
+		scorer.load(allBids, model);
 
-		for (BidDetails bid : allBids) {
-			double opponentEvaluation = model.getBidEvaluation(bid.getBid());
-
-			// Get our own agent's utility
-			double agentOwnUtility = negotiationSession.getUtilitySpace().getUtility(bid.getBid());
-
-			// Based on the weight of the utility between our own agent and the opponent to calculate the score
-			// 也可以根据OM估算出来的类型和时间，动态改变对手和自己的权重
-			double score = weightAgentUtility * agentOwnUtility + (1 - weightAgentUtility) * opponentEvaluation;
-
-			// If the evaluation value even not achieve the reservation value, just not accept the new bid.
-			if (opponentEvaluation > updatedReservationValue) {
-				allWereZero = false;
-			}
-
-			// If not, and if the score also gets better, than accept the new bid as a better bid and record the score in the bestScore.
-			if (score > bestScore && opponentEvaluation > updatedReservationValue) {
-				bestBid = bid;
-				bestScore = score;
-//				opponentReservationValue = opponentEvaluation;
-			}
-		}
-
-
-		// When parameter allWereZero is true which means that opponent model does not provide useful information
-		// Instead of randomising the return bid, we search through our own utilityspace to maximise our own utility
-		if (allWereZero) {
-			bestBid = null;
-			double maxAgentUtility = -1;
-			for (BidDetails bid : allBids) {
-				double agentOwnUtility = negotiationSession.getUtilitySpace().getUtility(bid.getBid());
-				if (agentOwnUtility > maxAgentUtility) {
-					maxAgentUtility = agentOwnUtility;
-					bestBid = bid;
-				}
-			}
-			return bestBid;
-		}
-
-		return bestBid;
+		// Bids whose opponent evaluation does not exceed the reservation value are not considered.
+		// When no bid is left, the opponent model does not provide useful information
+		// and the bid which maximises our own utility is taken instead of a random one.
+		int best = scorer.selectWeighted(weightAgentUtility, updatedReservationValue);
+		return allBids.get(best);
 	}
 
 
@@ -174,6 +201,9 @@ public class Group4_OMS extends OMStrategy {
 		set.add(new BOAparameter("t", 1.1, "Time after which the OM should not be updated"));
 		set.add(new BOAparameter("w", 0.5, "Weight given to the agent's utility"));
 		set.add(new BOAparameter("r", 0.1, "Reservation value for the opponent's bid"));
+		set.add(new BOAparameter("minCandidates", 50.0, "Minimum number of candidate bids scored per round"));
+		set.add(new BOAparameter("maxCandidates", 200.0, "Maximum number of candidate bids scored per round"));
+		set.add(new BOAparameter("frontier", 0.0, "Whether the bid on the estimated Pareto frontier is a candidate"));
 		return set;
 	}
 
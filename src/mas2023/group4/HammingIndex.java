@@ -0,0 +1,114 @@
+package mas2023.group4;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.issue.Issue;
+import genius.core.issue.Value;
+
+/**
+ * Nearest-neighbour index over a list of bids, such as a bid ranking, by the
+ * number of equal values (the complement of the Hamming distance).
+ *
+ * For every issue and value the index keeps a bitset of the bids having that
+ * value. A query adds the bitsets of its values into a bit-sliced counter,
+ * 64 bids per machine word, and then narrows the candidates down from the
+ * highest slice to find the bids with the most equal values. A query costs
+ * O(bids / 64 * issues) word operations instead of comparing every bid.
+ */
+public class HammingIndex {
+
+	private final int[] issueNumbers;
+	/** Per issue, the bitset of the bids having each value */
+	private final HashMap<Value, long[]>[] postings;
+	private final int size;
+	private final int words;
+	/** Bit slices of the match counter, slice s of word w at s * words + w */
+	private final long[] slices;
+	private final int numberOfSlices;
+	private final long[] candidates;
+
+	@SuppressWarnings("unchecked")
+	public HammingIndex(List<Bid> bids, Domain domain) {
+		List<Issue> issues = domain.getIssues();
+		int n = issues.size();
+		issueNumbers = new int[n];
+		postings = new HashMap[n];
+		size = bids.size();
+		words = (size + 63) >>> 6;
+		for (int i = 0; i < n; i++) {
+			issueNumbers[i] = issues.get(i).getNumber();
+			postings[i] = new HashMap<Value, long[]>();
+		}
+		for (int k = 0; k < size; k++) {
+			Bid bid = bids.get(k);
+			for (int i = 0; i < n; i++) {
+				Value value = bid.getValue(issueNumbers[i]);
+				long[] posting = postings[i].get(value);
+				if (posting == null) {
+					posting = new long[words];
+					postings[i].put(value, posting);
+				}
+				posting[k >>> 6] |= 1L << k;
+			}
+		}
+		numberOfSlices = 32 - Integer.numberOfLeadingZeros(n);
+		slices = new long[numberOfSlices * words];
+		candidates = new long[words];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the index of the first bid with the most values equal to the
+	 *         given bid, or -1 if no bid shares a value with it.
+	 */
+	public int nearest(Bid bid) {
+		Arrays.fill(slices, 0);
+		for (int i = 0; i < issueNumbers.length; i++) {
+			long[] posting = postings[i].get(bid.getValue(issueNumbers[i]));
+			if (posting == null) {
+				continue;
+			}
+			for (int w = 0; w < words; w++) {
+				long carry = posting[w];
+				for (int s = 0; s < numberOfSlices && carry != 0; s++) {
+					int at = s * words + w;
+					long overflow = slices[at] & carry;
+					slices[at] ^= carry;
+					carry = overflow;
+				}
+			}
+		}
+
+		// keep the candidates with a 1 in the highest slice where any has one
+		Arrays.fill(candidates, -1L);
+		boolean matched = false;
+		for (int s = numberOfSlices - 1; s >= 0; s--) {
+			boolean any = false;
+			for (int w = 0; w < words && !any; w++) {
+				any = (candidates[w] & slices[s * words + w]) != 0;
+			}
+			if (any) {
+				matched = true;
+				for (int w = 0; w < words; w++) {
+					candidates[w] &= slices[s * words + w];
+				}
+			}
+		}
+		if (!matched) {
+			return -1;
+		}
+		for (int w = 0; w < words; w++) {
+			if (candidates[w] != 0) {
+				return (w << 6) + Long.numberOfTrailingZeros(candidates[w]);
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,451 @@
+package mas2023.group4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.DoublePredicate;
+
+import genius.core.Bid;
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.OutcomeSpace;
+import genius.core.issue.Issue;
+import genius.core.issue.IssueDiscrete;
+import genius.core.misc.Range;
+import genius.core.utility.AbstractUtilitySpace;
+import genius.core.utility.AdditiveUtilitySpace;
+
+/**
+ * Outcome space for additive utility spaces with only discrete issues. Unlike
+ * the SortedOutcomeSpace it never enumerates and sorts every bid of the
+ * domain.
+ *
+ * For every issue the values are sorted on their contribution (issue weight *
+ * normalized evaluation) to the utility. The bid nearest to a target utility
+ * is found with a branch-and-bound search over these tables, and the bids
+ * within a range are generated per utility band of width BAND_WIDTH. Only the
+ * most recently used bands are kept on the heap. Candidate windows are
+ * counted and streamed on the tables directly, decoding only the bids which
+ * the window selects.
+ *
+ * The tables and the bands only depend on the utility space, so they are kept
+ * in an {@link Index} which sessions negotiating with the same profile can
+ * share through the {@link DomainPool}. Only the scratch space of the
+ * searches belongs to a single outcome space.
+ */
+public class LazyOutcomeSpace extends OutcomeSpace implements CandidateSource {
+
+	/** Width of a utility band which is materialized at once */
+	public static final double BAND_WIDTH = 0.01;
+	/** Maximum number of bids kept in the band cache */
+	private static final int MAX_CACHED_BIDS = 200000;
+	/** Margin of the bounds of a subtree against rounding of the sums */
+	private static final double EPSILON = 1e-9;
+
+	/**
+	 * The read-only tables of an outcome space and its cache of bands. An
+	 * index can be used by several outcome spaces at once.
+	 */
+	public static final class Index {
+
+		private final BidCodec codec;
+		/** Per issue, the value indices sorted on descending contribution */
+		private final int[][] order;
+		/** Per issue, the contribution of the value at the same position */
+		private final double[][] contributions;
+		/** Sum of the best (worst) contributions of the issues i..n-1 */
+		private final double[] maxRest;
+		private final double[] minRest;
+		/** Number of bids of the issues i..n-1 */
+		private final double[] restSizes;
+		private final int numberOfBands;
+
+		/** Materialized bands, in least recently used order */
+		private final LinkedHashMap<Integer, List<BidDetails>> bands;
+		private int cachedBids;
+
+		public Index(AdditiveUtilitySpace utilitySpace, BidCodec codec) {
+			this(codec, codec.contributions(utilitySpace));
+		}
+
+		/**
+		 * @param table
+		 *            the contribution of every value, indexed like the codec.
+		 */
+		Index(BidCodec codec, double[][] table) {
+			this.codec = codec;
+			int n = codec.getNumberOfIssues();
+			order = new int[n][];
+			contributions = new double[n][];
+			for (int i = 0; i < n; i++) {
+				sortValues(i, table[i]);
+			}
+
+			maxRest = new double[n + 1];
+			minRest = new double[n + 1];
+			restSizes = new double[n + 1];
+			restSizes[n] = 1;
+			for (int i = n - 1; i >= 0; i--) {
+				double[] c = contributions[i];
+				maxRest[i] = maxRest[i + 1] + c[0];
+				minRest[i] = minRest[i + 1] + c[c.length - 1];
+				restSizes[i] = restSizes[i + 1] * c.length;
+			}
+			numberOfBands = (int) Math.ceil(1.0 / BAND_WIDTH) + 1;
+			bands = new LinkedHashMap<Integer, List<BidDetails>>(16, 0.75f, true);
+		}
+
+		/**
+		 * Stores the value indices of the issue sorted on descending contribution.
+		 */
+		private void sortValues(int i, final double[] c) {
+			Integer[] sorted = new Integer[c.length];
+			for (int j = 0; j < c.length; j++) {
+				sorted[j] = j;
+			}
+			Arrays.sort(sorted, (x, y) -> Double.compare(c[y], c[x]));
+
+			order[i] = new int[c.length];
+			contributions[i] = new double[c.length];
+			for (int j = 0; j < c.length; j++) {
+				order[i][j] = sorted[j];
+				contributions[i][j] = c[sorted[j]];
+			}
+		}
+
+		public BidCodec getCodec() {
+			return codec;
+		}
+
+		private int bandOf(double utility) {
+			int band = (int) Math.floor(utility / BAND_WIDTH);
+			return Math.max(0, Math.min(numberOfBands - 1, band));
+		}
+
+		/**
+		 * Returns the bids of a band from the cache, generating the band and
+		 * evicting the least recently used bands if needed.
+		 */
+		private synchronized List<BidDetails> getBand(int band) {
+			List<BidDetails> bids = bands.get(band);
+			if (bids != null) {
+				return bids;
+			}
+			bids = Collections.unmodifiableList(generateBand(band));
+			bands.put(band, bids);
+			cachedBids += bids.size();
+
+			Iterator<Map.Entry<Integer, List<BidDetails>>> it = bands.entrySet().iterator();
+			while (cachedBids > MAX_CACHED_BIDS && bands.size() > 1) {
+				Map.Entry<Integer, List<BidDetails>> eldest = it.next();
+				if (eldest.getKey() == band) {
+					continue;
+				}
+				cachedBids -= eldest.getValue().size();
+				it.remove();
+			}
+			return bids;
+		}
+
+		private List<BidDetails> generateBand(int band) {
+			// the bounds only prune the search, the band of a bid is decided by bandOf
+			double lower = band == 0 ? -Double.MAX_VALUE : band * BAND_WIDTH - EPSILON;
+			double upper = band == numberOfBands - 1 ? Double.MAX_VALUE : (band + 1) * BAND_WIDTH + EPSILON;
+			List<BidDetails> bids = new ArrayList<BidDetails>();
+			collect(0, 0, band, lower, upper, new int[order.length], bids);
+			bids.sort((x, y) -> Double.compare(y.getMyUndiscountedUtil(), x.getMyUndiscountedUtil()));
+			return bids;
+		}
+
+		/**
+		 * Depth-first enumeration of the bids of the band, skipping every
+		 * subtree which cannot reach the interval [lower, upper) around it.
+		 */
+		private void collect(int depth, double partial, int band, double lower, double upper, int[] current,
+				List<BidDetails> bids) {
+			if (depth == order.length) {
+				if (bandOf(partial) == band) {
+					bids.add(new BidDetails(toBid(current), partial));
+				}
+				return;
+			}
+			double[] c = contributions[depth];
+			for (int j = 0; j < c.length; j++) {
+				double sum = partial + c[j];
+				if (sum + maxRest[depth + 1] < lower) {
+					// values are sorted on descending contribution, so the rest is even lower
+					return;
+				}
+				if (sum + minRest[depth + 1] >= upper) {
+					continue;
+				}
+				current[depth] = j;
+				collect(depth + 1, sum, band, lower, upper, current, bids);
+			}
+		}
+
+		/**
+		 * Counts the bids with a utility in [lower, upper] on the tables,
+		 * like collect, but adding a subtree which lies within the interval
+		 * at once instead of enumerating it.
+		 */
+		private double count(int depth, double partial, double lower, double upper) {
+			if (depth == order.length) {
+				return partial >= lower && partial <= upper ? 1 : 0;
+			}
+			double[] c = contributions[depth];
+			double count = 0;
+			for (int j = 0; j < c.length; j++) {
+				double sum = partial + c[j];
+				double low = sum + minRest[depth + 1];
+				double high = sum + maxRest[depth + 1];
+				if (high < lower - EPSILON) {
+					// values are sorted on descending contribution, so the rest is even lower
+					break;
+				}
+				if (low > upper + EPSILON) {
+					continue;
+				}
+				if (low >= lower + EPSILON && high <= upper - EPSILON) {
+					count += restSizes[depth + 1];
+				} else {
+					count += count(depth + 1, sum, lower, upper);
+				}
+			}
+			return count;
+		}
+
+		/**
+		 * Passes the utilities of the bids in [lower, upper] to the filter in
+		 * depth-first order, skipping the subtrees outside the interval like
+		 * count, and decodes the bids which the filter accepts.
+		 */
+		private void forEach(int depth, double partial, double lower, double upper, int[] current,
+				DoublePredicate filter, Consumer<BidDetails> action) {
+			if (depth == order.length) {
+				if (partial >= lower && partial <= upper && filter.test(partial)) {
+					action.accept(new BidDetails(toBid(current), partial));
+				}
+				return;
+			}
+			double[] c = contributions[depth];
+			for (int j = 0; j < c.length; j++) {
+				double sum = partial + c[j];
+				if (sum + maxRest[depth + 1] < lower - EPSILON) {
+					// values are sorted on descending contribution, so the rest is even lower
+					break;
+				}
+				if (sum + minRest[depth + 1] > upper + EPSILON) {
+					continue;
+				}
+				current[depth] = j;
+				forEach(depth + 1, sum, lower, upper, current, filter, action);
+			}
+		}
+
+		private BidDetails toBidDetails(int[] positions) {
+			double util = 0;
+			for (int i = 0; i < positions.length; i++) {
+				util += contributions[i][positions[i]];
+			}
+			return new BidDetails(toBid(positions), util);
+		}
+
+		private Bid toBid(int[] positions) {
+			int[] code = new int[positions.length];
+			for (int i = 0; i < positions.length; i++) {
+				code[i] = order[i][positions[i]];
+			}
+			return codec.decode(code);
+		}
+	}
+
+	private final Index index;
+	private final int[][] order;
+	private final double[][] contributions;
+	private final double[] maxRest;
+	private final double[] minRest;
+	/** Reference to the index in the pool, or null if it is not shared */
+	private final DomainPool.Reference<Index> reference;
+
+	private BidDetails maxBid;
+	private BidDetails minBid;
+
+	/** Scratch space of the searches, positions into order[i] */
+	private final int[] current;
+	private final int[] best;
+	private double bestDistance;
+
+	/**
+	 * Creates an outcome space of which the index is shared through the
+	 * {@link DomainPool} with the other outcome spaces of the same profile.
+	 */
+	public LazyOutcomeSpace(AdditiveUtilitySpace utilitySpace) {
+		this(DomainPool.outcomeIndex(utilitySpace));
+	}
+
+	public LazyOutcomeSpace(AdditiveUtilitySpace utilitySpace, BidCodec codec) {
+		this(new Index(utilitySpace, codec), null);
+	}
+
+	private LazyOutcomeSpace(DomainPool.Reference<Index> reference) {
+		this(reference.get(), reference);
+		reference.bind(this);
+	}
+
+	private LazyOutcomeSpace(Index index, DomainPool.Reference<Index> reference) {
+		this.index = index;
+		this.reference = reference;
+		order = index.order;
+		contributions = index.contributions;
+		maxRest = index.maxRest;
+		minRest = index.minRest;
+		current = new int[order.length];
+		best = new int[order.length];
+	}
+
+	/**
+	 * @return true if the lazy outcome space can be used for the given
+	 *         utility space, i.e. it is additive and all issues are discrete.
+	 */
+	public static boolean supports(AbstractUtilitySpace utilitySpace) {
+		if (!(utilitySpace instanceof AdditiveUtilitySpace)) {
+			return false;
+		}
+		for (Issue issue : utilitySpace.getDomain().getIssues()) {
+			if (!(issue instanceof IssueDiscrete)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public Index getIndex() {
+		return index;
+	}
+
+	/**
+	 * Releases the shared index. The outcome space must not be used
+	 * afterwards; if it is never released, the index is released when the
+	 * outcome space is garbage collected.
+	 */
+	public void release() {
+		if (reference != null) {
+			reference.release();
+		}
+	}
+
+	/**
+	 * Returns the bid of which the utility is closest to the given utility.
+	 */
+	@Override
+	public BidDetails getBidNearUtility(double utility) {
+		bestDistance = Double.MAX_VALUE;
+		searchNear(0, 0, utility);
+		return index.toBidDetails(best);
+	}
+
+	private void searchNear(int depth, double partial, double target) {
+		if (depth == order.length) {
+			double distance = Math.abs(partial - target);
+			if (distance < bestDistance) {
+				bestDistance = distance;
+				System.arraycopy(current, 0, best, 0, current.length);
+			}
+			return;
+		}
+		double[] c = contributions[depth];
+		for (int j = 0; j < c.length; j++) {
+			double sum = partial + c[j];
+			double low = sum + minRest[depth + 1];
+			double high = sum + maxRest[depth + 1];
+			// distance from the target to the utilities reachable from here
+			double bound = target < low ? low - target : (target > high ? target - high : 0);
+			if (bound >= bestDistance) {
+				continue;
+			}
+			current[depth] = j;
+			searchNear(depth + 1, sum, target);
+			if (bestDistance == 0) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns all bids with a utility in the given range, ordered on
+	 * descending utility. Only the bands overlapping the range are
+	 * materialized.
+	 */
+	@Override
+	public List<BidDetails> getBidsinRange(Range range) {
+		double lower = range.getLowerbound();
+		double upper = range.getUpperbound();
+		List<BidDetails> result = new ArrayList<BidDetails>();
+		for (int band = index.bandOf(upper); band >= index.bandOf(lower); band--) {
+			for (BidDetails bid : index.getBand(band)) {
+				double util = bid.getMyUndiscountedUtil();
+				if (util >= lower && util <= upper) {
+					result.add(bid);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Counts the bids in the range on the tables of the index, without
+	 * materializing the bands overlapping it.
+	 */
+	@Override
+	public int countInRange(double lower, double upper) {
+		return (int) Math.min(Integer.MAX_VALUE, index.count(0, 0, lower, upper));
+	}
+
+	/**
+	 * Streams the bids in the range from the tables of the index in
+	 * depth-first order, without materializing the bands overlapping it.
+	 */
+	@Override
+	public void forEachInRange(double lower, double upper, DoublePredicate filter, Consumer<BidDetails> action) {
+		index.forEach(0, 0, lower, upper, new int[order.length], filter, action);
+	}
+
+	/**
+	 * Enumerates the whole domain. This defeats the purpose of this class and
+	 * is only here for components which really need every outcome.
+	 */
+	@Override
+	public List<BidDetails> getAllOutcomes() {
+		List<BidDetails> result = new ArrayList<BidDetails>();
+		for (int band = index.numberOfBands - 1; band >= 0; band--) {
+			result.addAll(index.generateBand(band));
+		}
+		return result;
+	}
+
+	@Override
+	public BidDetails getMaxBidPossible() {
+		if (maxBid == null) {
+			// position 0 holds the best value of every issue
+			maxBid = index.toBidDetails(new int[order.length]);
+		}
+		return maxBid;
+	}
+
+	@Override
+	public BidDetails getMinBidPossible() {
+		if (minBid == null) {
+			int[] worst = new int[order.length];
+			for (int i = 0; i < worst.length; i++) {
+				worst[i] = order[i].length - 1;
+			}
+			minBid = index.toBidDetails(worst);
+		}
+		return minBid;
+	}
+}
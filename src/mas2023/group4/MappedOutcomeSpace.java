@@ -0,0 +1,483 @@
+package mas2023.group4;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+import java.util.function.DoublePredicate;
+
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.OutcomeSpace;
+import genius.core.misc.Range;
+import genius.core.utility.AdditiveUtilitySpace;
+
+/**
+ * Outcome space of which every bid, sorted on descending utility, is stored
+ * in a memory-mapped file: the packed codes of the bids (see
+ * {@link BidCodec#pack(int[])}) followed by their utilities. The file is named
+ * after a hash of the contents of the profile, so it is built once and then
+ * mapped read-only by every later session and run with the same profile. The
+ * bids live outside of the heap and are only decoded when they are returned.
+ * The file is built in chunks, so the heap never holds more than CHUNK bids.
+ *
+ * Only additive utility spaces with discrete issues and at most MAX_OUTCOMES
+ * bids are supported.
+ */
+public class MappedOutcomeSpace extends OutcomeSpace implements CandidateSource {
+
+	/** Maximum number of bids of a mapped outcome space, 256 MB on disk */
+	public static final long MAX_OUTCOMES = 1L << 24;
+
+	private static final int MAGIC = 0x47344d4f; // G4MO
+	private static final int VERSION = 1;
+	/** magic, version, count */
+	private static final int HEADER = 16;
+	/** Maximum number of bids which are sorted on the heap at once, 16 MB */
+	private static final int CHUNK = 1 << 20;
+
+	/** Files which are being built in the background */
+	private static final Set<File> BUILDING = ConcurrentHashMap.newKeySet();
+	private static final ExecutorService BUILDER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "outcome-index-builder");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	/**
+	 * The mapped file of a profile, with a table of the position of every
+	 * utility bucket of width 1 / BUCKETS. A query first looks up the buckets
+	 * of the utility, which bound the slice of the bids to search to a single
+	 * bucket, independent of the size of the domain. An index can be used by
+	 * several outcome spaces at once.
+	 */
+	public static final class Index {
+
+		/** Number of utility buckets over [0, 1] */
+		private static final int BUCKETS = 4096;
+
+		private final BidCodec codec;
+		private final int size;
+		private final LongBuffer codes;
+		private final DoubleBuffer utilities;
+		/** For every b, the position of the first bid with utility <= b / BUCKETS */
+		private final int[] buckets;
+
+		private Index(BidCodec codec, ByteBuffer mapped) {
+			this.codec = codec;
+			mapped.order(ByteOrder.LITTLE_ENDIAN);
+			size = (int) mapped.getLong(8);
+			mapped.position(HEADER);
+			codes = mapped.slice().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+			mapped.position(HEADER + size * 8);
+			utilities = mapped.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+			buckets = new int[BUCKETS + 1];
+			for (int b = BUCKETS; b >= 0; b--) {
+				int from = b == BUCKETS ? 0 : buckets[b + 1];
+				buckets[b] = search(b / (double) BUCKETS, true, from, size);
+			}
+		}
+
+		/**
+		 * @return the position of the first bid with a utility of at most the
+		 *         given utility, or size if there is none.
+		 */
+		int firstAtMost(double utility) {
+			return find(utility, true);
+		}
+
+		/**
+		 * @return the position of the first bid with a utility below the
+		 *         given utility, or size if there is none.
+		 */
+		int firstBelow(double utility) {
+			return find(utility, false);
+		}
+
+		private int find(double utility, boolean inclusive) {
+			double scaled = utility * BUCKETS;
+			// the bids between the boundaries of the buckets around the utility
+			int from = scaled >= BUCKETS ? 0 : buckets[(int) Math.max(0, Math.ceil(scaled))];
+			int last = (int) Math.min(BUCKETS, inclusive ? Math.floor(scaled) : Math.ceil(scaled) - 1);
+			int to = last < 0 ? size : buckets[last];
+			return search(utility, inclusive, from, Math.max(from, to));
+		}
+
+		/**
+		 * Binary search in [low, high) for the first bid with a utility of at
+		 * most (inclusive) or below the given utility.
+		 */
+		private int search(double utility, boolean inclusive, int low, int high) {
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				double u = utilities.get(middle);
+				if (inclusive ? u > utility : u >= utility) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public double getUtility(int index) {
+			return utilities.get(index);
+		}
+
+		public long getCode(int index) {
+			return codes.get(index);
+		}
+	}
+
+	private final Index index;
+	/** Reference to the index in the pool, or null if it is not shared */
+	private final DomainPool.Reference<Index> reference;
+	private final int[] code;
+
+	/**
+	 * Creates an outcome space of which the index is shared through the
+	 * {@link DomainPool}, building the file of the profile first if needed.
+	 *
+	 * @throws IOException
+	 *             if the file of the profile cannot be written or mapped.
+	 */
+	public MappedOutcomeSpace(AdditiveUtilitySpace utilitySpace) throws IOException {
+		this(DomainPool.mappedIndex(utilitySpace, true));
+	}
+
+	/**
+	 * @return an outcome space of which the index is shared through the
+	 *         {@link DomainPool}, or null if the file of the profile is not
+	 *         built yet. The file is then built in the background, for the
+	 *         later sessions, so that no session waits for it.
+	 * @throws IOException
+	 *             if the file of the profile cannot be mapped.
+	 */
+	public static MappedOutcomeSpace ifBuilt(AdditiveUtilitySpace utilitySpace) throws IOException {
+		DomainPool.Reference<Index> reference = DomainPool.mappedIndex(utilitySpace, false);
+		return reference == null ? null : new MappedOutcomeSpace(reference);
+	}
+
+	private MappedOutcomeSpace(DomainPool.Reference<Index> reference) {
+		this.reference = reference;
+		this.index = reference.get();
+		code = new int[index.codec.getNumberOfIssues()];
+		reference.bind(this);
+	}
+
+	/**
+	 * @return true if a mapped outcome space can be built for the utility
+	 *         space.
+	 */
+	public static boolean supports(AdditiveUtilitySpace utilitySpace) {
+		return LazyOutcomeSpace.supports(utilitySpace)
+				&& utilitySpace.getDomain().getNumberOfPossibleBids() <= MAX_OUTCOMES;
+	}
+
+	/**
+	 * Maps the file of the profile in the directory. A missing file, or a
+	 * corrupt or truncated one which is deleted first, is built in this
+	 * thread if build is set, or else in the background, in which case null
+	 * is returned until the file is ready.
+	 */
+	static Index open(File dir, BidCodec codec, double[][] table, boolean build) throws IOException {
+		File file = new File(dir, hash(codec, table) + ".outcomes");
+		if (file.exists()) {
+			Index index = map(file, codec);
+			if (index != null) {
+				return index;
+			}
+			Files.deleteIfExists(file.toPath());
+		}
+		if (!build) {
+			buildInBackground(file, codec, table);
+			return null;
+		}
+		write(file, codec, table);
+		Index index = map(file, codec);
+		if (index == null) {
+			throw new IOException("Invalid outcome index " + file);
+		}
+		return index;
+	}
+
+	/**
+	 * @return the index of the file, or null if it is not a complete index.
+	 */
+	private static Index map(File file, BidCodec codec) throws IOException {
+		try (RandomAccessFile in = new RandomAccessFile(file, "r"); FileChannel channel = in.getChannel()) {
+			ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			mapped.order(ByteOrder.LITTLE_ENDIAN);
+			if (channel.size() < HEADER || mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION
+					|| channel.size() != HEADER + mapped.getLong(8) * 16) {
+				return null;
+			}
+			return new Index(codec, mapped);
+		}
+	}
+
+	private static void buildInBackground(File file, BidCodec codec, double[][] table) {
+		if (!BUILDING.add(file)) {
+			return;
+		}
+		BUILDER.execute(() -> {
+			try {
+				if (!file.exists()) {
+					write(file, codec, table);
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			} finally {
+				BUILDING.remove(file);
+			}
+		});
+	}
+
+	/**
+	 * Enumerates and sorts the bids of the profile and writes them to the
+	 * file, through a temporary file so that other sessions never map a
+	 * partial index. The bids are sorted in chunks of at most CHUNK bids,
+	 * which are written as sorted runs to a scratch file and merged into the
+	 * index, so the heap only holds one chunk at a time.
+	 */
+	private static void write(File file, BidCodec codec, double[][] table) throws IOException {
+		long[] blockSizes = ParallelOutcomeSorter.blockSizes(codec);
+		int size = (int) blockSizes[0];
+		// chunks of whole values of an issue, which the sorter splits along the values
+		int issue = 0;
+		while (blockSizes[issue] > CHUNK) {
+			issue++;
+		}
+		int chunk = issue == 0 ? size : (int) (CHUNK / blockSizes[issue] * blockSizes[issue]);
+
+		File dir = file.getParentFile();
+		dir.mkdirs();
+		File temporary = File.createTempFile(file.getName(), ".tmp", dir);
+		File scratch = null;
+		try {
+			try (RandomAccessFile out = new RandomAccessFile(temporary, "rw"); FileChannel channel = out.getChannel()) {
+				MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + size * 16L);
+				mapped.order(ByteOrder.LITTLE_ENDIAN);
+				mapped.putInt(0, MAGIC).putInt(4, VERSION).putLong(8, size);
+				LongBuffer codes = slice(mapped, HEADER).asLongBuffer();
+				DoubleBuffer utilities = slice(mapped, HEADER + size * 8).asDoubleBuffer();
+				if (chunk == size) {
+					sortChunk(codec, table, 0, size, codes, utilities);
+				} else {
+					scratch = File.createTempFile(file.getName(), ".runs", dir);
+					try (RandomAccessFile runs = new RandomAccessFile(scratch, "rw");
+							FileChannel runChannel = runs.getChannel()) {
+						MappedByteBuffer runMapped = runChannel.map(FileChannel.MapMode.READ_WRITE, 0, size * 16L);
+						LongBuffer runCodes = slice(runMapped, 0).asLongBuffer();
+						DoubleBuffer runUtilities = slice(runMapped, size * 8).asDoubleBuffer();
+						for (int first = 0; first < size; first += chunk) {
+							sortChunk(codec, table, first, Math.min(chunk, size - first), runCodes, runUtilities);
+						}
+						merge(runCodes, runUtilities, size, chunk, codes, utilities);
+					}
+				}
+				mapped.force();
+			}
+			Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporary.toPath());
+			if (scratch != null) {
+				Files.deleteIfExists(scratch.toPath());
+			}
+		}
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, int position) {
+		buffer.position(position);
+		return buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Sorts the count bids from the given code on and writes them, as a
+	 * sorted run, to the same positions of the buffers.
+	 */
+	private static void sortChunk(BidCodec codec, double[][] table, int first, int count, LongBuffer codes,
+			DoubleBuffer utilities) {
+		ParallelOutcomeSorter sorter = new ParallelOutcomeSorter(codec, table, first, count);
+		sorter.sort();
+		int[] order = sorter.getOrder();
+		double[] sorted = sorter.getUtilities();
+		for (int k = 0; k < count; k++) {
+			codes.put(first + k, first + order[k]);
+			utilities.put(first + k, sorted[order[k]]);
+		}
+	}
+
+	/**
+	 * Merges the sorted runs of chunk bids into the index. A chunk holds more
+	 * than CHUNK / 2 bids, so there are at most 2 * MAX_OUTCOMES / CHUNK runs
+	 * and the head of every run is scanned for the next bid. On equal
+	 * utilities the earlier run goes first, so the result is that of a stable
+	 * sort of all bids, as the runs are in the order of their codes.
+	 */
+	private static void merge(LongBuffer runCodes, DoubleBuffer runUtilities, int size, int chunk,
+			LongBuffer codes, DoubleBuffer utilities) {
+		int runs = (size + chunk - 1) / chunk;
+		int[] next = new int[runs];
+		int[] end = new int[runs];
+		double[] head = new double[runs];
+		for (int r = 0; r < runs; r++) {
+			next[r] = r * chunk;
+			end[r] = Math.min(size, next[r] + chunk);
+			head[r] = runUtilities.get(next[r]);
+		}
+		for (int k = 0; k < size; k++) {
+			int best = -1;
+			for (int r = 0; r < runs; r++) {
+				if (next[r] < end[r] && (best < 0 || head[r] > head[best])) {
+					best = r;
+				}
+			}
+			codes.put(k, runCodes.get(next[best]));
+			utilities.put(k, head[best]);
+			if (++next[best] < end[best]) {
+				head[best] = runUtilities.get(next[best]);
+			}
+		}
+	}
+
+	/**
+	 * @return a hash of the domain and the contribution of every value, which
+	 *         identifies the ordering of the bids of a profile.
+	 */
+	private static String hash(BidCodec codec, double[][] table) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(DomainPool.signature(codec.getDomain()).getBytes(StandardCharsets.UTF_8));
+			ByteBuffer bits = ByteBuffer.allocate(8);
+			for (double[] issue : table) {
+				for (double contribution : issue) {
+					bits.clear();
+					digest.update(bits.putDouble(contribution).array());
+				}
+			}
+			StringBuilder hex = new StringBuilder();
+			byte[] hash = digest.digest();
+			for (int i = 0; i < 16; i++) {
+				hex.append(String.format("%02x", hash[i]));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public Index getIndex() {
+		return index;
+	}
+
+	/**
+	 * Releases the shared index. The outcome space must not be used
+	 * afterwards.
+	 */
+	public void release() {
+		reference.release();
+	}
+
+	private BidDetails getBid(int k) {
+		index.codec.unpack(index.codes.get(k), code);
+		return new BidDetails(index.codec.decode(code), index.utilities.get(k));
+	}
+
+	@Override
+	public int getIndexOfBidNearUtility(double utility) {
+		int k = index.firstAtMost(utility);
+		if (k == index.size) {
+			return k - 1;
+		}
+		if (k > 0 && index.utilities.get(k - 1) - utility < utility - index.utilities.get(k)) {
+			return k - 1;
+		}
+		return k;
+	}
+
+	@Override
+	public BidDetails getBidNearUtility(double utility) {
+		return getBid(getIndexOfBidNearUtility(utility));
+	}
+
+	/**
+	 * Returns all bids with a utility in the given range, ordered on
+	 * descending utility. The slice of the range is found through the bucket
+	 * table, so the cost only depends on the number of bids returned.
+	 */
+	@Override
+	public List<BidDetails> getBidsinRange(Range range) {
+		int first = index.firstAtMost(range.getUpperbound());
+		int end = Math.max(first, index.firstBelow(range.getLowerbound()));
+		List<BidDetails> result = new ArrayList<BidDetails>(end - first);
+		for (int k = first; k < end; k++) {
+			result.add(getBid(k));
+		}
+		return result;
+	}
+
+	@Override
+	public int countInRange(double lower, double upper) {
+		return Math.max(0, index.firstBelow(lower) - index.firstAtMost(upper));
+	}
+
+	@Override
+	public void forEachInRange(double lower, double upper, DoublePredicate filter, Consumer<BidDetails> action) {
+		int end = index.firstBelow(lower);
+		for (int k = index.firstAtMost(upper); k < end; k++) {
+			if (filter.test(index.utilities.get(k))) {
+				action.accept(getBid(k));
+			}
+		}
+	}
+
+	/**
+	 * Decodes every bid of the domain onto the heap. This defeats the purpose
+	 * of this class and is only here for components which really need every
+	 * outcome.
+	 */
+	@Override
+	public List<BidDetails> getAllOutcomes() {
+		List<BidDetails> result = new ArrayList<BidDetails>(index.size);
+		for (int k = 0; k < index.size; k++) {
+			result.add(getBid(k));
+		}
+		return result;
+	}
+
+	@Override
+	public BidDetails getMaxBidPossible() {
+		return getBid(0);
+	}
+
+	@Override
+	public BidDetails getMinBidPossible() {
+		return getBid(index.size - 1);
+	}
+}
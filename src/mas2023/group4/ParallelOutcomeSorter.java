@@ -0,0 +1,246 @@
+package mas2023.group4;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Enumerates the bids of an additive utility space with discrete issues, or
+ * a range of them, and sorts them on descending utility on a ForkJoinPool.
+ *
+ * The bids are enumerated in the order of their packed code (see
+ * {@link BidCodec#pack(int[])}), so the bid at position k has code first + k,
+ * and the bids with the same value for the leading issues form consecutive
+ * blocks.
+ * The enumeration is split along these blocks; every task computes the
+ * utilities of its block and sorts it, and the sorted runs are merged. Both
+ * the sort and the merges are stable, so the result is exactly that of a
+ * sequential stable sort of the enumeration: equal utilities in the order
+ * of their code. That sort is kept as {@link #sortDescending(double[])} and
+ * the tests check the sorter against it.
+ */
+public class ParallelOutcomeSorter {
+
+	/** Number of bids below which a block is not split further */
+	static final int SEQUENTIAL_THRESHOLD = 1 << 13;
+
+	private final BidCodec codec;
+	private final double[][] table;
+	/** Number of bids in a block of one value of issue i, i.e. the radix of i */
+	private final long[] blockSizes;
+	/** Code of the first bid of the range */
+	private final long first;
+	private final int size;
+	/** Issue of which the range consists of whole values, or n if none */
+	private final int startIssue;
+
+	private double[] utilities;
+	private int[] order;
+	private int[] buffer;
+
+	/**
+	 * @param table
+	 *            the contribution of every value, indexed like the codec.
+	 */
+	public ParallelOutcomeSorter(BidCodec codec, double[][] table) {
+		this(codec, table, 0, -1);
+	}
+
+	/**
+	 * Sorts the count bids from the given code on, or all bids if count is
+	 * -1. The range is split along the values of the first issue of which it
+	 * holds whole values, or else in halves.
+	 */
+	public ParallelOutcomeSorter(BidCodec codec, double[][] table, long first, int count) {
+		this.codec = codec;
+		this.table = table;
+		int n = codec.getNumberOfIssues();
+		blockSizes = blockSizes(codec);
+		if (count < 0 && blockSizes[0] > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many outcomes: " + blockSizes[0]);
+		}
+		this.first = first;
+		this.size = count < 0 ? (int) blockSizes[0] : count;
+		int issue = n;
+		for (int i = 0; i < n; i++) {
+			if (first % blockSizes[i + 1] == 0 && size % blockSizes[i + 1] == 0) {
+				issue = i;
+				break;
+			}
+		}
+		startIssue = issue;
+	}
+
+	/**
+	 * @return for every issue i the number of bids with the same values for
+	 *         the issues before i, and 1 at the end.
+	 */
+	public static long[] blockSizes(BidCodec codec) {
+		int n = codec.getNumberOfIssues();
+		long[] blockSizes = new long[n + 1];
+		blockSizes[n] = 1;
+		for (int i = n - 1; i >= 0; i--) {
+			blockSizes[i] = blockSizes[i + 1] * codec.getNumberOfValues(i);
+		}
+		return blockSizes;
+	}
+
+	/**
+	 * Computes the utilities and the order on the common pool.
+	 */
+	public void sort() {
+		sort(ForkJoinPool.commonPool());
+	}
+
+	public void sort(ForkJoinPool pool) {
+		utilities = new double[size];
+		order = new int[size];
+		buffer = new int[size];
+		pool.invoke(new SortTask(startIssue, 0, size));
+		buffer = null;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long getFirst() {
+		return first;
+	}
+
+	/**
+	 * @return the utility of every bid, indexed by its code - first.
+	 */
+	public double[] getUtilities() {
+		return utilities;
+	}
+
+	/**
+	 * @return the codes - first of the bids, on descending utility.
+	 */
+	public int[] getOrder() {
+		return order;
+	}
+
+	/**
+	 * Sorts the bids [low, high), which are one or more whole blocks of the
+	 * given issue or, below the last issue, a part of a block.
+	 */
+	private class SortTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		private final int issue;
+		private final int low;
+		private final int high;
+
+		SortTask(int issue, int low, int high) {
+			this.issue = issue;
+			this.low = low;
+			this.high = high;
+		}
+
+		@Override
+		protected void compute() {
+			if (high - low <= SEQUENTIAL_THRESHOLD) {
+				evaluate(low, high);
+				sortSequential(low, high);
+				return;
+			}
+			int middle;
+			int blocks = (int) ((high - low) / blockSizes[Math.min(issue + 1, blockSizes.length - 1)]);
+			if (issue < codec.getNumberOfIssues() && blocks > 1) {
+				// split between the values of the issue
+				middle = low + (int) (blocks / 2 * blockSizes[issue + 1]);
+			} else if (issue < codec.getNumberOfIssues()) {
+				// a single value of the issue, split on the next one
+				new SortTask(issue + 1, low, high).compute();
+				return;
+			} else {
+				middle = (low + high) >>> 1;
+			}
+			invokeAll(new SortTask(issue, low, middle), new SortTask(issue, middle, high));
+			merge(low, middle, high);
+		}
+	}
+
+	/**
+	 * Computes the utilities of the bids [low, high) in the order of their
+	 * code, advancing the code like an odometer.
+	 */
+	private void evaluate(int low, int high) {
+		int n = codec.getNumberOfIssues();
+		int[] code = new int[n];
+		codec.unpack(first + low, code);
+		for (int k = low; k < high; k++) {
+			utilities[k] = BidCodec.utility(table, code);
+			for (int i = n - 1; i >= 0 && ++code[i] == codec.getNumberOfValues(i); i--) {
+				code[i] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Stable bottom-up merge sort of the codes [low, high) on descending
+	 * utility.
+	 */
+	private void sortSequential(int low, int high) {
+		for (int k = low; k < high; k++) {
+			order[k] = k;
+		}
+		for (int width = 1; width < high - low; width *= 2) {
+			for (int start = low; start < high - width; start += 2 * width) {
+				merge(start, start + width, Math.min(start + 2 * width, high));
+			}
+		}
+	}
+
+	/**
+	 * The sequential reference of the sorter, which it must match exactly.
+	 *
+	 * @return the positions of the utilities sorted on descending utility;
+	 *         equal utilities keep their order (a stable merge sort).
+	 */
+	static int[] sortDescending(double[] utilities) {
+		int[] order = new int[utilities.length];
+		for (int k = 0; k < order.length; k++) {
+			order[k] = k;
+		}
+		int[] buffer = new int[order.length];
+		for (int width = 1; width < order.length; width *= 2) {
+			for (int low = 0; low < order.length; low += 2 * width) {
+				int middle = Math.min(low + width, order.length);
+				int high = Math.min(low + 2 * width, order.length);
+				int i = low;
+				int j = middle;
+				for (int k = low; k < high; k++) {
+					if (i < middle && (j >= high || utilities[order[i]] >= utilities[order[j]])) {
+						buffer[k] = order[i++];
+					} else {
+						buffer[k] = order[j++];
+					}
+				}
+			}
+			int[] swap = order;
+			order = buffer;
+			buffer = swap;
+		}
+		return order;
+	}
+
+	/**
+	 * Merges the sorted runs [low, middle) and [middle, high) of the order.
+	 * On equal utilities the left run goes first, which keeps the merge
+	 * stable.
+	 */
+	private void merge(int low, int middle, int high) {
+		int i = low;
+		int j = middle;
+		for (int k = low; k < high; k++) {
+			if (i < middle && (j >= high || utilities[order[i]] >= utilities[order[j]])) {
+				buffer[k] = order[i++];
+			} else {
+				buffer[k] = order[j++];
+			}
+		}
+		System.arraycopy(buffer, low, order, low, high - low);
+	}
+}
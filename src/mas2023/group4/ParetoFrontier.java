@@ -0,0 +1,330 @@
+package mas2023.group4;
+
+import java.util.Arrays;
+
+import genius.core.bidding.BidDetails;
+
+/**
+ * Estimated Pareto frontier of the bids of an additive domain with discrete
+ * issues over (own utility, estimated opponent utility), where both
+ * utilities are sums of per issue contributions.
+ *
+ * The frontier is kept in a balanced tree over the issues. A leaf holds the
+ * non-dominated values of its issue; an inner node holds the non-dominated
+ * combinations of the points of its two children, which is the frontier of
+ * the sum of their issues. The root holds the frontier of the whole domain.
+ * To bound the cost of a node, a frontier of more than MAX_POINTS points is
+ * thinned to its first point and the last point of every own utility
+ * bucket, so the frontier is exact for small domains and an approximation
+ * from below for large ones, which still holds the bid with the highest own
+ * utility.
+ *
+ * When the opponent model changes, the issues of which the estimated
+ * contributions changed are rebuilt, with the nodes on their path to the
+ * root, lazily at the next query. As Group4_OM renormalizes the issue
+ * weights at every update, that is usually the whole tree. A node combines
+ * at most MAX_POINTS * MAX_POINTS pairs of points, so a rebuild takes
+ * O(n * MAX_POINTS^2 * log MAX_POINTS) time for n issues, whatever the size
+ * of the domain. A query on the root is a binary search, logarithmic in its
+ * size.
+ */
+public class ParetoFrontier {
+
+	/** Maximum number of points of the frontier of a node */
+	private static final int MAX_POINTS = 128;
+
+	private static class Node {
+
+		final Node left;
+		final Node right;
+		final Node parent;
+		/** Issue of a leaf, or -1 */
+		final int issue;
+		/** The points on descending own and ascending opponent utility */
+		double[] own;
+		double[] opponent;
+		/** Per point the point of the left child or the value of the leaf */
+		int[] first;
+		/** Per point the point of the right child */
+		int[] second;
+		int size;
+		boolean dirty = true;
+
+		Node(Node parent, int low, int high) {
+			this.parent = parent;
+			if (high - low == 1) {
+				issue = low;
+				left = null;
+				right = null;
+			} else {
+				issue = -1;
+				int middle = (low + high) >>> 1;
+				left = new Node(this, low, middle);
+				right = new Node(this, middle, high);
+			}
+		}
+	}
+
+	private final BidCodec codec;
+	private final double[][] ownTable;
+	private final Node root;
+	private final Node[] leaves;
+	/** The opponent contributions of the last update */
+	private final double[][] opponentTable;
+
+	/** Scratch space of the merges and queries */
+	private int[] order = new int[0];
+	private int[] buffer = new int[0];
+	private final int[] code;
+
+	/**
+	 * @param ownTable
+	 *            the contribution of every value to our own utility, indexed
+	 *            like the codec.
+	 */
+	public ParetoFrontier(BidCodec codec, double[][] ownTable) {
+		this.codec = codec;
+		this.ownTable = ownTable;
+		int n = codec.getNumberOfIssues();
+		root = new Node(null, 0, n);
+		leaves = new Node[n];
+		collectLeaves(root);
+		opponentTable = new double[n][];
+		code = new int[n];
+	}
+
+	private void collectLeaves(Node node) {
+		if (node.issue >= 0) {
+			leaves[node.issue] = node;
+		} else {
+			collectLeaves(node.left);
+			collectLeaves(node.right);
+		}
+	}
+
+	/**
+	 * Takes the new estimated contribution of every value to the opponent
+	 * utility, indexed like the codec, and marks the issues of which the
+	 * contributions changed.
+	 */
+	public void update(double[][] table) {
+		for (int i = 0; i < leaves.length; i++) {
+			if (!Arrays.equals(opponentTable[i], table[i])) {
+				opponentTable[i] = table[i].clone();
+				markDirty(leaves[i]);
+			}
+		}
+	}
+
+	private static void markDirty(Node node) {
+		// the ancestors of a dirty node are dirty
+		for (; node != null && !node.dirty; node = node.parent) {
+			node.dirty = true;
+		}
+	}
+
+	/**
+	 * Rebuilds the dirty nodes of the subtree.
+	 */
+	private void repair(Node node) {
+		if (!node.dirty) {
+			return;
+		}
+		if (node.issue >= 0) {
+			buildLeaf(node);
+		} else {
+			repair(node.left);
+			repair(node.right);
+			buildInner(node);
+		}
+		node.dirty = false;
+	}
+
+	private void buildLeaf(Node node) {
+		int values = ownTable[node.issue].length;
+		double[] own = ownTable[node.issue];
+		double[] opponent = opponentTable[node.issue];
+		int[] first = new int[values];
+		for (int j = 0; j < values; j++) {
+			first[j] = j;
+		}
+		filter(node, values, own.clone(), opponent.clone(), first, new int[values]);
+	}
+
+	private void buildInner(Node node) {
+		Node left = node.left;
+		Node right = node.right;
+		int count = left.size * right.size;
+		double[] own = new double[count];
+		double[] opponent = new double[count];
+		int[] first = new int[count];
+		int[] second = new int[count];
+		int k = 0;
+		for (int a = 0; a < left.size; a++) {
+			for (int b = 0; b < right.size; b++) {
+				own[k] = left.own[a] + right.own[b];
+				opponent[k] = left.opponent[a] + right.opponent[b];
+				first[k] = a;
+				second[k] = b;
+				k++;
+			}
+		}
+		filter(node, count, own, opponent, first, second);
+	}
+
+	/**
+	 * Stores the non-dominated points among the given ones in the node, on
+	 * descending own utility, thinned to MAX_POINTS.
+	 */
+	private void filter(Node node, int count, double[] own, double[] opponent, int[] first, int[] second) {
+		sort(count, own, opponent);
+		int[] kept = new int[count];
+		int size = 0;
+		double bestOpponent = Double.NEGATIVE_INFINITY;
+		for (int k = 0; k < count; k++) {
+			int p = order[k];
+			// of equal own utilities the first is the best for the opponent
+			if (opponent[p] > bestOpponent) {
+				kept[size++] = p;
+				bestOpponent = opponent[p];
+			}
+		}
+		if (size > MAX_POINTS) {
+			// keep the first point, the best for us, and the last point of every own utility bucket, the best
+			// one for the opponent
+			double high = own[kept[0]];
+			double width = (high - own[kept[size - 1]]) / (MAX_POINTS - 1);
+			int thinned = 1;
+			for (int k = 1; k < size; k++) {
+				int bucket = (int) ((high - own[kept[k]]) / width);
+				int next = k + 1 < size ? (int) ((high - own[kept[k + 1]]) / width) : -1;
+				if (next != bucket) {
+					kept[thinned++] = kept[k];
+				}
+			}
+			size = thinned;
+		}
+		node.own = new double[size];
+		node.opponent = new double[size];
+		node.first = new int[size];
+		node.second = new int[size];
+		for (int k = 0; k < size; k++) {
+			int p = kept[k];
+			node.own[k] = own[p];
+			node.opponent[k] = opponent[p];
+			node.first[k] = first[p];
+			node.second[k] = second[p];
+		}
+		node.size = size;
+	}
+
+	/**
+	 * Sorts the points in order on descending own and then descending
+	 * opponent utility, a stable bottom-up merge sort.
+	 */
+	private void sort(int count, double[] own, double[] opponent) {
+		if (order.length < count) {
+			order = new int[count];
+			buffer = new int[count];
+		}
+		for (int k = 0; k < count; k++) {
+			order[k] = k;
+		}
+		for (int width = 1; width < count; width *= 2) {
+			for (int low = 0; low < count - width; low += 2 * width) {
+				int middle = low + width;
+				int high = Math.min(low + 2 * width, count);
+				int i = low;
+				int j = middle;
+				for (int k = low; k < high; k++) {
+					if (i < middle && (j >= high || !before(order[j], order[i], own, opponent))) {
+						buffer[k] = order[i++];
+					} else {
+						buffer[k] = order[j++];
+					}
+				}
+				System.arraycopy(buffer, low, order, low, high - low);
+			}
+		}
+	}
+
+	private static boolean before(int x, int y, double[] own, double[] opponent) {
+		return own[x] > own[y] || (own[x] == own[y] && opponent[x] > opponent[y]);
+	}
+
+	/**
+	 * @return the number of points of the frontier.
+	 */
+	public int size() {
+		repair(root);
+		return root.size;
+	}
+
+	/**
+	 * @return the frontier bid which is best for the opponent among those
+	 *         with an own utility of at least the target, or the frontier bid
+	 *         with the highest own utility if none reaches the target.
+	 */
+	public BidDetails getBidAtLeast(double target) {
+		repair(root);
+		int k = lastAtLeast(target);
+		return toBidDetails(Math.max(0, k));
+	}
+
+	/**
+	 * @return the frontier bid of which the own utility is nearest to the
+	 *         target.
+	 */
+	public BidDetails getBidNear(double target) {
+		repair(root);
+		int k = lastAtLeast(target);
+		if (k < 0) {
+			return toBidDetails(0);
+		}
+		if (k + 1 < root.size && target - root.own[k + 1] < root.own[k] - target) {
+			k++;
+		}
+		return toBidDetails(k);
+	}
+
+	/**
+	 * @return the estimated opponent utility of the frontier point with an
+	 *         own utility of at least the target, as in getBidAtLeast.
+	 */
+	public double getOpponentUtilityAtLeast(double target) {
+		repair(root);
+		return root.opponent[Math.max(0, lastAtLeast(target))];
+	}
+
+	/**
+	 * @return the last point on the root with an own utility of at least the
+	 *         target, or -1 if there is none.
+	 */
+	private int lastAtLeast(double target) {
+		int low = 0;
+		int high = root.size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (root.own[middle] >= target) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low - 1;
+	}
+
+	private BidDetails toBidDetails(int point) {
+		decode(root, point);
+		return new BidDetails(codec.decode(code), BidCodec.utility(ownTable, code));
+	}
+
+	private void decode(Node node, int point) {
+		if (node.issue >= 0) {
+			code[node.issue] = node.first[point];
+		} else {
+			decode(node.left, node.first[point]);
+			decode(node.right, node.second[point]);
+		}
+	}
+}
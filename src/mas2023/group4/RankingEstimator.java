@@ -0,0 +1,169 @@
+package mas2023.group4;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.issue.IssueDiscrete;
+import genius.core.uncertainty.AdditiveUtilitySpaceFactory;
+import genius.core.uncertainty.BidRanking;
+import genius.core.utility.AbstractUtilitySpace;
+
+/**
+ * Estimates an additive utility space from a {@link BidRanking}.
+ *
+ * The model gives every value of every issue a non-negative contribution,
+ * and the utility of a bid is the sum of the contributions of its values.
+ * The contributions are fitted by gradient descent on the pairwise ranking
+ * (logistic) loss of every two consecutive bids of the ranking, with the
+ * worst and best ranked bid anchored to the low and high utility of the
+ * ranking. Afterwards the largest contribution of an issue is its weight and
+ * the contributions relative to it are the evaluations of its values.
+ *
+ * Fitting works on encoded bids in primitive arrays. The result only depends
+ * on the domain and the ranking, so it is cached per (domain, ranking hash)
+ * and repeated sessions on the same profile skip the fit. The encoded
+ * ranking is kept with the cached result and compared on lookup, so a hash
+ * collision fits again instead of returning the model of another ranking.
+ */
+public class RankingEstimator {
+
+	/** Passes over the ranking */
+	private static final int EPOCHS = 300;
+	private static final double LEARNING_RATE = 0.05;
+	/** Steepness of the logistic loss in the utility difference */
+	private static final double STEEPNESS = 20;
+	/** Weight of the anchoring of the worst and best bid */
+	private static final double ANCHOR_WEIGHT = 1;
+
+	/** Fitted contributions per domain and ranking */
+	private static final ConcurrentHashMap<String, Fit> CACHE = new ConcurrentHashMap<String, Fit>();
+
+	private final Domain domain;
+	private final BidCodec codec;
+
+	public RankingEstimator(Domain domain) {
+		this.domain = domain;
+		this.codec = new BidCodec(domain);
+	}
+
+	/**
+	 * @return the estimated utility space, fitted or taken from the cache.
+	 */
+	public AbstractUtilitySpace estimate(BidRanking ranking) {
+		return toUtilitySpace(contributions(ranking));
+	}
+
+	/**
+	 * @return the fitted contributions, taken from the cache if the same
+	 *         ranking was fitted before.
+	 */
+	double[][] contributions(BidRanking ranking) {
+		List<Bid> bidOrder = ranking.getBidOrder();
+		int[][] codes = new int[bidOrder.size()][];
+		int hash = 1;
+		for (int k = 0; k < codes.length; k++) {
+			codes[k] = codec.encode(bidOrder.get(k));
+			for (int value : codes[k]) {
+				hash = 31 * hash + value;
+			}
+		}
+		String key = domain.getName() + "#" + codes.length + "#" + hash + "#" + ranking.getLowUtility() + "#"
+				+ ranking.getHighUtility();
+		Fit cached = CACHE.get(key);
+		if (cached != null && Arrays.deepEquals(cached.codes, codes)) {
+			return cached.contributions;
+		}
+		double[][] contributions = fit(codes, ranking.getLowUtility(), ranking.getHighUtility());
+		CACHE.put(key, new Fit(codes, contributions));
+		return contributions;
+	}
+
+	/**
+	 * Fits the contributions to the encoded bids, ordered from worst to best.
+	 */
+	double[][] fit(int[][] codes, double low, double high) {
+		int n = codec.getNumberOfIssues();
+		double[][] x = new double[n][];
+		for (int i = 0; i < n; i++) {
+			x[i] = new double[codec.getNumberOfValues(i)];
+			Arrays.fill(x[i], 1.0 / n);
+		}
+		if (codes.length == 0) {
+			return x;
+		}
+
+		int[] worst = codes[0];
+		int[] best = codes[codes.length - 1];
+		for (int epoch = 0; epoch < EPOCHS; epoch++) {
+			double rate = LEARNING_RATE / (1 + epoch * 0.02);
+			for (int k = 0; k + 1 < codes.length; k++) {
+				int[] lower = codes[k];
+				int[] higher = codes[k + 1];
+				double margin = 0;
+				for (int i = 0; i < n; i++) {
+					if (lower[i] != higher[i]) {
+						margin += x[i][higher[i]] - x[i][lower[i]];
+					}
+				}
+				// derivative of log(1 + exp(-s * margin)) with respect to the margin, negated
+				double step = rate * STEEPNESS / (1 + Math.exp(STEEPNESS * margin));
+				for (int i = 0; i < n; i++) {
+					if (lower[i] != higher[i]) {
+						x[i][higher[i]] += step;
+						x[i][lower[i]] = Math.max(0, x[i][lower[i]] - step);
+					}
+				}
+			}
+			anchor(x, worst, low, rate);
+			anchor(x, best, high, rate);
+		}
+		return x;
+	}
+
+	/**
+	 * Moves the utility of the encoded bid towards the target by one
+	 * gradient step on the squared error.
+	 */
+	private static void anchor(double[][] x, int[] code, double target, double rate) {
+		double error = BidCodec.utility(x, code) - target;
+		double step = rate * ANCHOR_WEIGHT * error;
+		for (int i = 0; i < code.length; i++) {
+			x[i][code[i]] = Math.max(0, x[i][code[i]] - step);
+		}
+	}
+
+	private AbstractUtilitySpace toUtilitySpace(double[][] contributions) {
+		AdditiveUtilitySpaceFactory factory = new AdditiveUtilitySpaceFactory(domain);
+		List<IssueDiscrete> issues = factory.getIssues();
+		for (int i = 0; i < codec.getNumberOfIssues(); i++) {
+			IssueDiscrete issue = issues.get(i);
+			double max = 0;
+			for (double contribution : contributions[i]) {
+				max = Math.max(max, contribution);
+			}
+			factory.setWeight(issue, max);
+			for (int j = 0; j < contributions[i].length; j++) {
+				factory.setUtility(issue, codec.getValue(i, j), max > 0 ? contributions[i][j] / max : 1);
+			}
+		}
+		factory.normalizeWeights();
+		return factory.getUtilitySpace();
+	}
+
+	/**
+	 * The contributions fitted to an encoded ranking.
+	 */
+	private static class Fit {
+
+		final int[][] codes;
+		final double[][] contributions;
+
+		Fit(int[][] codes, double[][] contributions) {
+			this.codes = codes;
+			this.contributions = contributions;
+		}
+	}
+}
@@ -0,0 +1,16 @@
+package mas2023.group4;
+
+/**
+ * A bidding strategy which concedes along a known curve of target
+ * utilities. The acceptance strategy binds to it once at init instead of
+ * downcasting the offering strategy on every opponent offer.
+ */
+public interface TargetUtilityCurve {
+
+	/**
+	 * @param time
+	 *            the normalized time of the negotiation, in [0, 1].
+	 * @return the utility which the strategy aims for at the given time.
+	 */
+	double getTargetUtility(double time);
+}
@@ -0,0 +1,486 @@
+package mas2023.log;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index over the session outcomes in the Genius logs of one or more
+ * directories: the NegotiationOutcome elements of the Log-Session_*.xml and
+ * tournament*.log.xml files, with the distance to the Nash point taken from
+ * the matching row of the tournament*.log.csv file if there is one.
+ *
+ * The logs are memory-mapped and scanned for the few attributes which are
+ * indexed, so a log is never loaded onto the heap as a whole. The index is
+ * stored on disk; on the next build only the logs which changed since (by
+ * size and modification time) are scanned again.
+ */
+public class LogIndex {
+
+	private static final int MAGIC = 0x47344c49; // G4LI
+	private static final int VERSION = 1;
+
+	private static final byte[] OUTCOME = bytes("<NegotiationOutcome");
+	private static final byte[] AGENT = bytes("<resultsOfAgent");
+
+	/**
+	 * One session of the logs.
+	 */
+	public static class Session {
+
+		/** Index of the log file */
+		final int file;
+		/** Offset of the NegotiationOutcome element in the log */
+		final long offset;
+		final int domain;
+		final int deadline;
+		/** Normalized time of the agreement, or NaN without agreement */
+		final double agreementTime;
+		/** Distance of the outcome to the Nash point, or NaN if unknown */
+		final double nashDistance;
+		/** Per agent: the configuration (the agent name without @n) */
+		final int[] agents;
+		final double[] utilities;
+		final double[] discountedUtilities;
+
+		Session(int file, long offset, int domain, int deadline, double agreementTime, double nashDistance,
+				int[] agents, double[] utilities, double[] discountedUtilities) {
+			this.file = file;
+			this.offset = offset;
+			this.domain = domain;
+			this.deadline = deadline;
+			this.agreementTime = agreementTime;
+			this.nashDistance = nashDistance;
+			this.agents = agents;
+			this.utilities = utilities;
+			this.discountedUtilities = discountedUtilities;
+		}
+
+		public boolean hasAgreement() {
+			return !Double.isNaN(agreementTime);
+		}
+
+		public double getAgreementTime() {
+			return agreementTime;
+		}
+
+		public double getNashDistance() {
+			return nashDistance;
+		}
+
+		public int getNumberOfAgents() {
+			return agents.length;
+		}
+
+		public int getAgent(int i) {
+			return agents[i];
+		}
+
+		public double getUtility(int i) {
+			return utilities[i];
+		}
+
+		public double getDiscountedUtility(int i) {
+			return discountedUtilities[i];
+		}
+
+		public int getDomain() {
+			return domain;
+		}
+
+		public int getDeadline() {
+			return deadline;
+		}
+
+		public long getOffset() {
+			return offset;
+		}
+	}
+
+	private final List<String> strings = new ArrayList<String>();
+	private final Map<String, Integer> stringIds = new HashMap<String, Integer>();
+	/** Per log file: path, size and modification time */
+	private final List<String> files = new ArrayList<String>();
+	private final List<long[]> fileStamps = new ArrayList<long[]>();
+	private final List<Session> sessions = new ArrayList<Session>();
+
+	/**
+	 * Loads the index from the index file, if it exists, and brings it up to
+	 * date with the logs in the given directories.
+	 */
+	public static LogIndex build(File indexFile, List<File> logDirs) throws IOException {
+		LogIndex stored = indexFile.exists() ? load(indexFile) : new LogIndex();
+		// the stored files by path and their sessions, so that an unchanged log only copies its own sessions
+		Map<String, Integer> storedFiles = new HashMap<String, Integer>();
+		List<List<Session>> storedSessions = new ArrayList<List<Session>>();
+		for (int f = 0; f < stored.files.size(); f++) {
+			storedFiles.put(stored.files.get(f), f);
+			storedSessions.add(new ArrayList<Session>());
+		}
+		for (Session s : stored.sessions) {
+			if (s.file >= 0 && s.file < storedSessions.size()) {
+				storedSessions.get(s.file).add(s);
+			}
+		}
+		LogIndex index = new LogIndex();
+		for (File dir : logDirs) {
+			File[] logs = dir.listFiles();
+			if (logs == null) {
+				continue;
+			}
+			Arrays.sort(logs);
+			for (File log : logs) {
+				String name = log.getName();
+				if (name.endsWith(".xml") && !name.endsWith(".logStats.xml")
+						&& (name.startsWith("Log-Session_") || name.startsWith("tournament"))) {
+					index.add(log, stored, storedFiles, storedSessions);
+				}
+			}
+		}
+		index.save(indexFile);
+		return index;
+	}
+
+	/**
+	 * Adds the sessions of the log, copied from the stored index if the log
+	 * did not change, else scanned.
+	 *
+	 * @param storedFiles
+	 *            the index of every file of the stored index, by path.
+	 * @param storedSessions
+	 *            the sessions of the stored index, per file.
+	 */
+	private void add(File log, LogIndex stored, Map<String, Integer> storedFiles, List<List<Session>> storedSessions)
+			throws IOException {
+		String path = log.getPath();
+		long[] stamp = { log.length(), log.lastModified() };
+		Integer storedFile = storedFiles.get(path);
+		int file = files.size();
+		files.add(path);
+		fileStamps.add(stamp);
+		if (storedFile != null && Arrays.equals(stored.fileStamps.get(storedFile), stamp)) {
+			for (Session s : storedSessions.get(storedFile)) {
+				int[] agents = new int[s.agents.length];
+				for (int i = 0; i < agents.length; i++) {
+					agents[i] = intern(stored.strings.get(s.agents[i]));
+				}
+				sessions.add(new Session(file, s.offset, intern(stored.strings.get(s.domain)),
+						intern(stored.strings.get(s.deadline)), s.agreementTime, s.nashDistance, agents,
+						s.utilities, s.discountedUtilities));
+			}
+		} else {
+			scan(log, file);
+		}
+	}
+
+	/**
+	 * Scans the NegotiationOutcome elements of a memory-mapped log.
+	 */
+	private void scan(File log, int file) throws IOException {
+		double[] nashDistances = readNashDistances(log);
+		FileChannel channel = FileChannel.open(log.toPath(), StandardOpenOption.READ);
+		try {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			int position = indexOf(buffer, OUTCOME, 0);
+			int number = 0;
+			while (position >= 0) {
+				int next = indexOf(buffer, OUTCOME, position + OUTCOME.length);
+				int end = next < 0 ? buffer.limit() : next;
+				Map<String, String> outcome = attributes(buffer, position + OUTCOME.length);
+
+				List<Integer> agents = new ArrayList<Integer>();
+				List<double[]> results = new ArrayList<double[]>();
+				int agent = indexOf(buffer, AGENT, position);
+				while (agent >= 0 && agent < end) {
+					Map<String, String> result = attributes(buffer, agent + AGENT.length);
+					agents.add(intern(configuration(result.get("agent"))));
+					results.add(new double[] { parse(result.get("finalUtility")),
+							parse(result.get("discountedUtility")) });
+					agent = indexOf(buffer, AGENT, agent + AGENT.length);
+				}
+
+				int[] agentIds = new int[agents.size()];
+				double[] utilities = new double[agents.size()];
+				double[] discountedUtilities = new double[agents.size()];
+				for (int i = 0; i < agentIds.length; i++) {
+					agentIds[i] = agents.get(i);
+					utilities[i] = results.get(i)[0];
+					discountedUtilities[i] = results.get(i)[1];
+				}
+				String time = outcome.get("timeOfAgreement");
+				double nash = nashDistances != null && number < nashDistances.length ? nashDistances[number]
+						: Double.NaN;
+				sessions.add(new Session(file, position, intern(String.valueOf(outcome.get("domain"))),
+						intern(String.valueOf(outcome.get("deadline"))), time == null ? Double.NaN : parse(time),
+						nash, agentIds, utilities, discountedUtilities));
+				number++;
+				position = next;
+			}
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * @return the Dist. to Nash column of the tournament CSV belonging to a
+	 *         tournament XML log, or null if there is none.
+	 */
+	private static double[] readNashDistances(File log) throws IOException {
+		String name = log.getName();
+		if (!name.endsWith(".log.xml")) {
+			return null;
+		}
+		File csv = new File(log.getParentFile(), name.substring(0, name.length() - ".xml".length()) + ".csv");
+		if (!csv.exists()) {
+			return null;
+		}
+		FileChannel channel = FileChannel.open(csv.toPath(), StandardOpenOption.READ);
+		try {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			List<Double> distances = new ArrayList<Double>();
+			int column = -1;
+			int lineNumber = 0;
+			int start = 0;
+			while (start < buffer.limit()) {
+				int end = start;
+				while (end < buffer.limit() && buffer.get(end) != '\n') {
+					end++;
+				}
+				String[] fields = decode(buffer, start, end).trim().split(";", -1);
+				if (lineNumber == 1) {
+					column = Arrays.asList(fields).indexOf("Dist. to Nash");
+				} else if (lineNumber > 1 && column >= 0 && fields.length > column) {
+					distances.add(parse(fields[column]));
+				}
+				lineNumber++;
+				start = end + 1;
+			}
+			double[] result = new double[distances.size()];
+			for (int i = 0; i < result.length; i++) {
+				result[i] = distances.get(i);
+			}
+			return column < 0 ? null : result;
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * @return the agent configuration, i.e. the agent name without the @n of
+	 *         its position in the session.
+	 */
+	static String configuration(String agent) {
+		if (agent == null) {
+			return "?";
+		}
+		int at = agent.lastIndexOf('@');
+		return at < 0 ? agent : agent.substring(0, at);
+	}
+
+	/**
+	 * Parses the attributes of the element of which the name ends just
+	 * before the given position.
+	 */
+	private static Map<String, String> attributes(ByteBuffer buffer, int position) {
+		Map<String, String> attributes = new HashMap<String, String>();
+		int i = position;
+		int limit = buffer.limit();
+		while (i < limit) {
+			byte b = buffer.get(i);
+			if (b == '>' || b == '/') {
+				break;
+			}
+			if (b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+				i++;
+				continue;
+			}
+			int nameStart = i;
+			while (i < limit && buffer.get(i) != '=') {
+				i++;
+			}
+			String name = decode(buffer, nameStart, i).trim();
+			i++;
+			byte quote = buffer.get(i++);
+			int valueStart = i;
+			while (i < limit && buffer.get(i) != quote) {
+				i++;
+			}
+			attributes.put(name, unescape(decode(buffer, valueStart, i)));
+			i++;
+		}
+		return attributes;
+	}
+
+	private static String unescape(String value) {
+		if (value.indexOf('&') < 0) {
+			return value;
+		}
+		return value.replace("&quot;", "\"").replace("&apos;", "'").replace("&lt;", "<").replace("&gt;", ">")
+				.replace("&amp;", "&");
+	}
+
+	private static int indexOf(ByteBuffer buffer, byte[] pattern, int from) {
+		int last = buffer.limit() - pattern.length;
+		outer: for (int i = from; i <= last; i++) {
+			for (int j = 0; j < pattern.length; j++) {
+				if (buffer.get(i + j) != pattern[j]) {
+					continue outer;
+				}
+			}
+			return i;
+		}
+		return -1;
+	}
+
+	private static String decode(ByteBuffer buffer, int start, int end) {
+		byte[] bytes = new byte[end - start];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(start + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static double parse(String value) {
+		try {
+			return value == null ? Double.NaN : Double.parseDouble(value.trim());
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	private static byte[] bytes(String s) {
+		return s.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	private int intern(String string) {
+		Integer id = stringIds.get(string);
+		if (id == null) {
+			id = strings.size();
+			strings.add(string);
+			stringIds.put(string, id);
+		}
+		return id;
+	}
+
+	public List<Session> getSessions() {
+		return sessions;
+	}
+
+	public String getString(int id) {
+		return strings.get(id);
+	}
+
+	/**
+	 * @return the path of the log of the session.
+	 */
+	public String getFile(Session session) {
+		return files.get(session.file);
+	}
+
+	private void save(File indexFile) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(strings.size());
+			for (String string : strings) {
+				byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+			out.writeInt(files.size());
+			for (int f = 0; f < files.size(); f++) {
+				byte[] bytes = files.get(f).getBytes(StandardCharsets.UTF_8);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+				out.writeLong(fileStamps.get(f)[0]);
+				out.writeLong(fileStamps.get(f)[1]);
+			}
+			out.writeInt(sessions.size());
+			for (Session s : sessions) {
+				out.writeInt(s.file);
+				out.writeLong(s.offset);
+				out.writeInt(s.domain);
+				out.writeInt(s.deadline);
+				out.writeDouble(s.agreementTime);
+				out.writeDouble(s.nashDistance);
+				out.writeInt(s.agents.length);
+				for (int i = 0; i < s.agents.length; i++) {
+					out.writeInt(s.agents[i]);
+					out.writeDouble(s.utilities[i]);
+					out.writeDouble(s.discountedUtilities[i]);
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Reads a stored index through a memory map.
+	 */
+	private static LogIndex load(File indexFile) throws IOException {
+		LogIndex index = new LogIndex();
+		FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ);
+		try {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				// an index of another version is rebuilt from scratch
+				return index;
+			}
+			int numberOfStrings = buffer.getInt();
+			for (int i = 0; i < numberOfStrings; i++) {
+				index.intern(getString(buffer));
+			}
+			int numberOfFiles = buffer.getInt();
+			for (int f = 0; f < numberOfFiles; f++) {
+				index.files.add(getString(buffer));
+				index.fileStamps.add(new long[] { buffer.getLong(), buffer.getLong() });
+			}
+			int numberOfSessions = buffer.getInt();
+			for (int k = 0; k < numberOfSessions; k++) {
+				int file = buffer.getInt();
+				long offset = buffer.getLong();
+				int domain = buffer.getInt();
+				int deadline = buffer.getInt();
+				double agreementTime = buffer.getDouble();
+				double nashDistance = buffer.getDouble();
+				int n = buffer.getInt();
+				int[] agents = new int[n];
+				double[] utilities = new double[n];
+				double[] discountedUtilities = new double[n];
+				for (int i = 0; i < n; i++) {
+					agents[i] = buffer.getInt();
+					utilities[i] = buffer.getDouble();
+					discountedUtilities[i] = buffer.getDouble();
+				}
+				index.sessions.add(new Session(file, offset, domain, deadline, agreementTime, nashDistance, agents,
+						utilities, discountedUtilities));
+			}
+		} catch (RuntimeException e) {
+			// a damaged index is rebuilt from scratch
+			return new LogIndex();
+		} finally {
+			channel.close();
+		}
+		return index;
+	}
+
+	private static String getString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,146 @@
+package mas2023.log;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Answers questions about the historical session logs from a
+ * {@link LogIndex}: per agent configuration the number of sessions, the
+ * agreement rate, the mean (discounted) utility, the mean distance to the
+ * Nash point and the mean time of agreement.
+ *
+ * Usage:
+ *
+ * <pre>
+ * LogQuery [logDir]... [-index file] [-domain text] [-agent text]
+ * </pre>
+ *
+ * The log directories default to log and genius/log, the index to
+ * log/.logindex. With -domain or -agent only the sessions of which the
+ * domain or agent configuration contains the text are counted.
+ */
+public class LogQuery {
+
+	/**
+	 * Running totals of one agent configuration.
+	 */
+	public static class Totals {
+
+		int sessions;
+		int agreements;
+		double utility;
+		double discountedUtility;
+		int nashSessions;
+		double nashDistance;
+		double agreementTime;
+
+		void add(LogIndex.Session session, int agent) {
+			sessions++;
+			utility += session.getUtility(agent);
+			discountedUtility += session.getDiscountedUtility(agent);
+			if (!Double.isNaN(session.getNashDistance())) {
+				nashSessions++;
+				nashDistance += session.getNashDistance();
+			}
+			if (session.hasAgreement()) {
+				agreements++;
+				agreementTime += session.getAgreementTime();
+			}
+		}
+
+		public int getSessions() {
+			return sessions;
+		}
+
+		public double getAgreementRate() {
+			return sessions == 0 ? Double.NaN : agreements / (double) sessions;
+		}
+
+		public double getMeanUtility() {
+			return sessions == 0 ? Double.NaN : utility / sessions;
+		}
+
+		public double getMeanDiscountedUtility() {
+			return sessions == 0 ? Double.NaN : discountedUtility / sessions;
+		}
+
+		/**
+		 * @return the mean distance to the Nash point over the sessions of
+		 *         which it is known.
+		 */
+		public double getMeanNashDistance() {
+			return nashSessions == 0 ? Double.NaN : nashDistance / nashSessions;
+		}
+
+		/**
+		 * @return the mean normalized time of agreement over the sessions
+		 *         which ended in an agreement.
+		 */
+		public double getMeanAgreementTime() {
+			return agreements == 0 ? Double.NaN : agreementTime / agreements;
+		}
+	}
+
+	/**
+	 * @return the totals per agent configuration of the sessions matching the
+	 *         filters, which may be null.
+	 */
+	public static Map<String, Totals> perConfiguration(LogIndex index, String domainFilter, String agentFilter) {
+		Map<String, Totals> totals = new TreeMap<String, Totals>();
+		for (LogIndex.Session session : index.getSessions()) {
+			if (domainFilter != null && !index.getString(session.getDomain()).contains(domainFilter)) {
+				continue;
+			}
+			for (int i = 0; i < session.getNumberOfAgents(); i++) {
+				String configuration = index.getString(session.getAgent(i));
+				if (agentFilter != null && !configuration.contains(agentFilter)) {
+					continue;
+				}
+				Totals t = totals.get(configuration);
+				if (t == null) {
+					t = new Totals();
+					totals.put(configuration, t);
+				}
+				t.add(session, i);
+			}
+		}
+		return totals;
+	}
+
+	public static void main(String[] args) throws Exception {
+		List<File> logDirs = new ArrayList<File>();
+		File indexFile = new File("log/.logindex");
+		String domain = null;
+		String agent = null;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-index")) {
+				indexFile = new File(args[++i]);
+			} else if (args[i].equals("-domain")) {
+				domain = args[++i];
+			} else if (args[i].equals("-agent")) {
+				agent = args[++i];
+			} else {
+				logDirs.add(new File(args[i]));
+			}
+		}
+		if (logDirs.isEmpty()) {
+			logDirs.add(new File("log"));
+			logDirs.add(new File("genius/log"));
+		}
+
+		LogIndex index = LogIndex.build(indexFile, logDirs);
+		System.out.println(index.getSessions().size() + " sessions indexed");
+		System.out.println("sep=;");
+		System.out.println("Agent;Sessions;Agreement rate;Mean util.;Mean disc. util.;Mean Nash dist.;Mean agreement time");
+		for (Map.Entry<String, Totals> entry : perConfiguration(index, domain, agent).entrySet()) {
+			Totals t = entry.getValue();
+			System.out.println(String.format(Locale.US, "%s;%d;%.3f;%.5f;%.5f;%.5f;%.5f", entry.getKey(),
+					t.getSessions(), t.getAgreementRate(), t.getMeanUtility(), t.getMeanDiscountedUtility(),
+					t.getMeanNashDistance(), t.getMeanAgreementTime()));
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package mas2023.log;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Converts binary session logs back to the Log-Session_*.csv format of
+ * Genius:
+ *
+ * <pre>
+ * round,turn,time,agent,(Offer  bid:Bid[...])
+ * agreement,Bid[...],utility 1,utility 2
+ * </pre>
+ *
+ * Usage: SessionLogConverter log.bin... writes log.csv next to every log.
+ */
+public class SessionLogConverter {
+
+	public static void convert(File binary, File csv) throws IOException {
+		final PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(csv)));
+		final SessionLogReader reader = new SessionLogReader();
+		try {
+			reader.read(binary, new SessionLogReader.Visitor() {
+				@Override
+				public void session(String domain, String deadline) {
+				}
+
+				@Override
+				public void action(int round, int turn, double time, String agent, byte type, int[] bid,
+						String other) {
+					String action;
+					if (type == SessionLogFormat.OFFER) {
+						action = "(Offer  bid:" + reader.bidToString(bid) + ")";
+					} else if (type == SessionLogFormat.ACCEPT) {
+						action = "(Accept  bid:" + reader.bidToString(bid) + ")";
+					} else if (type == SessionLogFormat.END_NEGOTIATION) {
+						action = "(EndNegotiation)";
+					} else {
+						action = other;
+					}
+					out.println(round + "," + turn + "," + time + "," + agent + "," + action);
+				}
+
+				@Override
+				public void agreement(int[] bid, double[] utilities) {
+					StringBuilder line = new StringBuilder("agreement,").append(reader.bidToString(bid));
+					for (double utility : utilities) {
+						line.append(',').append(utility);
+					}
+					out.println(line);
+				}
+			});
+		} finally {
+			out.close();
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		for (String arg : args) {
+			File binary = new File(arg);
+			String name = binary.getName();
+			int dot = name.lastIndexOf('.');
+			File csv = new File(binary.getParentFile(), (dot < 0 ? name : name.substring(0, dot)) + ".csv");
+			convert(binary, csv);
+			System.out.println(binary + " -> " + csv);
+		}
+	}
+}
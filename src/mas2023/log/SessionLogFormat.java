@@ -0,0 +1,63 @@
+package mas2023.log;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The binary session log format. A file starts with MAGIC and VERSION,
+ * followed by records which each start with a tag byte:
+ * <ul>
+ * <li>STRING: defines the next string of the dictionary (ids count up from
+ * 0): the length in bytes and the UTF-8 bytes. Agent names, issue names,
+ * values and paths are written once and referred to by id afterwards.
+ * <li>SESSION: domain id, deadline id.
+ * <li>ACTION: round, turn, time (8 bytes), agent id, action type, and for an
+ * offer or accept the bid.
+ * <li>AGREEMENT: the bid, the number of utilities and every utility (8 bytes
+ * each).
+ * </ul>
+ * Integers are unsigned variable-length (7 bits per byte, low bits first). A
+ * bid is the number of issues followed by an (issue name id, value id) pair
+ * per issue.
+ */
+public final class SessionLogFormat {
+
+	public static final int MAGIC = 0x47344c47; // G4LG
+	public static final int VERSION = 1;
+
+	public static final byte STRING = 1;
+	public static final byte SESSION = 2;
+	public static final byte ACTION = 3;
+	public static final byte AGREEMENT = 4;
+
+	public static final byte OFFER = 1;
+	public static final byte ACCEPT = 2;
+	public static final byte END_NEGOTIATION = 3;
+	/** Any other action, followed by the id of its string form */
+	public static final byte OTHER = 4;
+
+	/** Maximum length of a variable-length int */
+	static final int MAX_VARINT = 5;
+
+	private SessionLogFormat() {
+	}
+
+	static void putVarint(ByteBuffer buffer, int value) {
+		while ((value & ~0x7f) != 0) {
+			buffer.put((byte) ((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	static int getVarint(ByteBuffer buffer) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			value |= (b & 0x7f) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+}
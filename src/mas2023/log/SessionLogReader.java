@@ -0,0 +1,143 @@
+package mas2023.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a log in the {@link SessionLogFormat}, handing every record to a
+ * {@link Visitor}. The file is memory-mapped, and strings are only decoded
+ * once, when they are defined.
+ */
+public class SessionLogReader {
+
+	/**
+	 * Receives the records of a log. A bid is given as the ids of its issue
+	 * names and values, interleaved, which can be resolved with
+	 * {@link SessionLogReader#getString(int)}.
+	 */
+	public interface Visitor {
+
+		void session(String domain, String deadline);
+
+		/**
+		 * @param bid
+		 *            the bid of an offer or accept, else null. The array is
+		 *            reused for the next record.
+		 * @param other
+		 *            the string form of an action of type OTHER, else null.
+		 */
+		void action(int round, int turn, double time, String agent, byte type, int[] bid, String other);
+
+		/**
+		 * @param bid
+		 *            the agreement; the array is reused for the next record.
+		 */
+		void agreement(int[] bid, double[] utilities);
+	}
+
+	private final List<String> strings = new ArrayList<String>();
+	private int[] bid = new int[16];
+	private int bidLength;
+
+	/**
+	 * Reads the whole log.
+	 */
+	public void read(File file, Visitor visitor) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), visitor);
+		} finally {
+			channel.close();
+		}
+	}
+
+	public void read(ByteBuffer buffer, Visitor visitor) throws IOException {
+		strings.clear();
+		if (buffer.remaining() < 8 || buffer.getInt() != SessionLogFormat.MAGIC) {
+			throw new IOException("Not a session log");
+		}
+		int version = buffer.getInt();
+		if (version != SessionLogFormat.VERSION) {
+			throw new IOException("Unsupported session log version " + version);
+		}
+		while (buffer.hasRemaining()) {
+			byte tag = buffer.get();
+			switch (tag) {
+			case SessionLogFormat.STRING:
+				byte[] bytes = new byte[SessionLogFormat.getVarint(buffer)];
+				buffer.get(bytes);
+				strings.add(new String(bytes, StandardCharsets.UTF_8));
+				break;
+			case SessionLogFormat.SESSION:
+				visitor.session(getString(SessionLogFormat.getVarint(buffer)),
+						getString(SessionLogFormat.getVarint(buffer)));
+				break;
+			case SessionLogFormat.ACTION:
+				int round = SessionLogFormat.getVarint(buffer);
+				int turn = SessionLogFormat.getVarint(buffer);
+				double time = buffer.getDouble();
+				String agent = getString(SessionLogFormat.getVarint(buffer));
+				byte type = buffer.get();
+				int[] actionBid = null;
+				String other = null;
+				if (type == SessionLogFormat.OFFER || type == SessionLogFormat.ACCEPT) {
+					actionBid = getBid(buffer);
+				} else if (type == SessionLogFormat.OTHER) {
+					other = getString(SessionLogFormat.getVarint(buffer));
+				}
+				visitor.action(round, turn, time, agent, type, actionBid, other);
+				break;
+			case SessionLogFormat.AGREEMENT:
+				int[] agreement = getBid(buffer);
+				double[] utilities = new double[SessionLogFormat.getVarint(buffer)];
+				for (int i = 0; i < utilities.length; i++) {
+					utilities[i] = buffer.getDouble();
+				}
+				visitor.agreement(agreement, utilities);
+				break;
+			default:
+				throw new IOException("Unknown record " + tag + " at " + (buffer.position() - 1));
+			}
+		}
+	}
+
+	private int[] getBid(ByteBuffer buffer) {
+		int issues = SessionLogFormat.getVarint(buffer);
+		bidLength = 2 * issues;
+		if (bid.length != bidLength) {
+			bid = new int[bidLength];
+		}
+		for (int i = 0; i < bidLength; i++) {
+			bid[i] = SessionLogFormat.getVarint(buffer);
+		}
+		return bid;
+	}
+
+	/**
+	 * @return the string of the dictionary with the given id.
+	 */
+	public String getString(int id) {
+		return strings.get(id);
+	}
+
+	/**
+	 * @return the bid in the format of Bid.toString, e.g. Bid[Food: Catering,
+	 *         Drinks: Beer Only].
+	 */
+	public String bidToString(int[] bid) {
+		StringBuilder s = new StringBuilder("Bid[");
+		for (int i = 0; i < bid.length; i += 2) {
+			if (i > 0) {
+				s.append(", ");
+			}
+			s.append(getString(bid[i])).append(": ").append(getString(bid[i + 1]));
+		}
+		return s.append(']').toString();
+	}
+}
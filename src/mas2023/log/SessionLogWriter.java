@@ -0,0 +1,271 @@
+package mas2023.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import genius.core.Bid;
+import genius.core.actions.Accept;
+import genius.core.actions.Action;
+import genius.core.actions.EndNegotiation;
+import genius.core.actions.Offer;
+import genius.core.issue.Issue;
+
+/**
+ * Writes session logs in the {@link SessionLogFormat}. The negotiation
+ * threads only hand their events to the writer; the encoding and the file
+ * I/O happen on a single background thread, which fills a buffer per log and
+ * writes it to the file channel when it is full or the log is closed. One
+ * writer can serve the logs of many concurrent sessions.
+ */
+public class SessionLogWriter {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "session-log-writer");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	/**
+	 * Opens a new log. The file is created on the writer thread.
+	 */
+	public SessionLog open(final File file, final String domain, final String deadline) {
+		final SessionLog log = new SessionLog();
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				log.open(file, domain, deadline);
+			}
+		});
+		return log;
+	}
+
+	/**
+	 * Writes the pending events of all logs and stops the writer thread,
+	 * waiting for as long as that takes.
+	 *
+	 * @throws InterruptedException
+	 *             if interrupted while waiting; the writer thread then still
+	 *             finishes the pending events in the background.
+	 */
+	public void close() throws InterruptedException {
+		executor.shutdown();
+		while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+			System.err.println("Still writing the pending session log events");
+		}
+	}
+
+	/**
+	 * The log of one session. Its methods may be called from the negotiation
+	 * thread and return immediately.
+	 */
+	public class SessionLog {
+
+		private FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		private final HashMap<String, Integer> dictionary = new HashMap<String, Integer>();
+		private int[] bidIds = new int[16];
+
+		private SessionLog() {
+		}
+
+		public void action(final int round, final int turn, final double time, final String agent,
+				final Action action) {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					writeAction(round, turn, time, agent, action);
+				}
+			});
+		}
+
+		public void agreement(final Bid bid, final double[] utilities) {
+			final double[] copy = utilities.clone();
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					writeAgreement(bid, copy);
+				}
+			});
+		}
+
+		public void close() {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					closeChannel();
+				}
+			});
+		}
+
+		private void open(File file, String domain, String deadline) {
+			try {
+				channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+						StandardOpenOption.TRUNCATE_EXISTING);
+				buffer.putInt(SessionLogFormat.MAGIC);
+				buffer.putInt(SessionLogFormat.VERSION);
+				int domainId = intern(domain);
+				int deadlineId = intern(deadline);
+				ensure(1 + 2 * SessionLogFormat.MAX_VARINT);
+				buffer.put(SessionLogFormat.SESSION);
+				SessionLogFormat.putVarint(buffer, domainId);
+				SessionLogFormat.putVarint(buffer, deadlineId);
+			} catch (IOException e) {
+				e.printStackTrace();
+				channel = null;
+			}
+		}
+
+		private void writeAction(int round, int turn, double time, String agent, Action action) {
+			if (channel == null) {
+				return;
+			}
+			try {
+				int agentId = intern(agent);
+				Bid bid = null;
+				byte type;
+				int otherId = -1;
+				if (action instanceof Offer) {
+					type = SessionLogFormat.OFFER;
+					bid = ((Offer) action).getBid();
+				} else if (action instanceof Accept) {
+					type = SessionLogFormat.ACCEPT;
+					bid = ((Accept) action).getBid();
+				} else if (action instanceof EndNegotiation) {
+					type = SessionLogFormat.END_NEGOTIATION;
+				} else {
+					type = SessionLogFormat.OTHER;
+					otherId = intern(String.valueOf(action));
+				}
+				int issues = bid == null ? 0 : internBid(bid);
+
+				ensure(2 + 4 * SessionLogFormat.MAX_VARINT + 8 + bidSize(issues));
+				buffer.put(SessionLogFormat.ACTION);
+				SessionLogFormat.putVarint(buffer, round);
+				SessionLogFormat.putVarint(buffer, turn);
+				buffer.putDouble(time);
+				SessionLogFormat.putVarint(buffer, agentId);
+				buffer.put(type);
+				if (bid != null) {
+					putBid(issues);
+				} else if (otherId >= 0) {
+					SessionLogFormat.putVarint(buffer, otherId);
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+
+		private void writeAgreement(Bid bid, double[] utilities) {
+			if (channel == null) {
+				return;
+			}
+			try {
+				int issues = internBid(bid);
+				ensure(1 + bidSize(issues) + SessionLogFormat.MAX_VARINT + 8 * utilities.length);
+				buffer.put(SessionLogFormat.AGREEMENT);
+				putBid(issues);
+				SessionLogFormat.putVarint(buffer, utilities.length);
+				for (double utility : utilities) {
+					buffer.putDouble(utility);
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+
+		private void closeChannel() {
+			if (channel == null) {
+				return;
+			}
+			try {
+				flush();
+				channel.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			channel = null;
+		}
+
+		/**
+		 * Interns the issue names and values of the bid into bidIds.
+		 * 
+		 * @return the number of issues.
+		 */
+		private int internBid(Bid bid) throws IOException {
+			List<Issue> issues = bid.getIssues();
+			if (bidIds.length < 2 * issues.size()) {
+				bidIds = new int[2 * issues.size()];
+			}
+			for (int i = 0; i < issues.size(); i++) {
+				Issue issue = issues.get(i);
+				bidIds[2 * i] = intern(issue.getName());
+				bidIds[2 * i + 1] = intern(String.valueOf(bid.getValue(issue.getNumber())));
+			}
+			return issues.size();
+		}
+
+		private int bidSize(int issues) {
+			return (1 + 2 * issues) * SessionLogFormat.MAX_VARINT;
+		}
+
+		private void putBid(int issues) {
+			SessionLogFormat.putVarint(buffer, issues);
+			for (int i = 0; i < 2 * issues; i++) {
+				SessionLogFormat.putVarint(buffer, bidIds[i]);
+			}
+		}
+
+		/**
+		 * @return the id of the string, defining it first if it is new.
+		 */
+		private int intern(String string) throws IOException {
+			Integer id = dictionary.get(string);
+			if (id != null) {
+				return id;
+			}
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			ensure(1 + SessionLogFormat.MAX_VARINT);
+			buffer.put(SessionLogFormat.STRING);
+			SessionLogFormat.putVarint(buffer, bytes.length);
+			if (bytes.length <= buffer.capacity()) {
+				ensure(bytes.length);
+				buffer.put(bytes);
+			} else {
+				flush();
+				channel.write(ByteBuffer.wrap(bytes));
+			}
+			id = dictionary.size();
+			dictionary.put(string, id);
+			return id;
+		}
+
+		private void ensure(int bytes) throws IOException {
+			if (buffer.remaining() < bytes) {
+				flush();
+			}
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+	}
+}
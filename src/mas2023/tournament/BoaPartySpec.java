@@ -0,0 +1,95 @@
+package mas2023.tournament;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import genius.core.parties.NegotiationParty;
+
+/**
+ * A BOA party as configured in boapartyrepo.xml: a name and, for each of the
+ * four components, its class and parameters.
+ */
+public class BoaPartySpec implements PartySpec {
+
+	/**
+	 * One component of a BOA party.
+	 */
+	public static class Component {
+
+		private final String className;
+		private final Map<String, Double> parameters;
+
+		public Component(String className, Map<String, Double> parameters) {
+			this.className = className;
+			this.parameters = parameters;
+		}
+
+		public String getClassName() {
+			return className;
+		}
+
+		public Map<String, Double> getParameters() {
+			return parameters;
+		}
+
+		public Object newInstance() throws Exception {
+			return Class.forName(className).getDeclaredConstructor().newInstance();
+		}
+
+		/**
+		 * @return a copy of this component with the given parameter values
+		 *         replacing the configured ones.
+		 */
+		public Component with(Map<String, Double> overrides) {
+			Map<String, Double> merged = new HashMap<String, Double>(parameters);
+			merged.putAll(overrides);
+			return new Component(className, merged);
+		}
+	}
+
+	private final String name;
+	private final Component biddingStrategy;
+	private final Component acceptanceStrategy;
+	private final Component opponentModel;
+	private final Component omStrategy;
+
+	public BoaPartySpec(String name, Component biddingStrategy, Component acceptanceStrategy,
+			Component opponentModel, Component omStrategy) {
+		this.name = name;
+		this.biddingStrategy = biddingStrategy;
+		this.acceptanceStrategy = acceptanceStrategy;
+		this.opponentModel = opponentModel;
+		this.omStrategy = omStrategy;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public NegotiationParty create() {
+		return new ConfiguredBoaParty(this);
+	}
+
+	public Component getBiddingStrategy() {
+		return biddingStrategy;
+	}
+
+	public Component getAcceptanceStrategy() {
+		return acceptanceStrategy;
+	}
+
+	public Component getOpponentModel() {
+		return opponentModel;
+	}
+
+	public Component getOmStrategy() {
+		return omStrategy;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
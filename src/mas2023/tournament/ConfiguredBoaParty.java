@@ -0,0 +1,45 @@
+package mas2023.tournament;
+
+import genius.core.boaframework.AcceptanceStrategy;
+import genius.core.boaframework.BoaParty;
+import genius.core.boaframework.OMStrategy;
+import genius.core.boaframework.OfferingStrategy;
+import genius.core.boaframework.OpponentModel;
+import genius.core.parties.NegotiationInfo;
+
+/**
+ * A BOA party of which the components and their parameters are taken from a
+ * {@link BoaPartySpec}, the headless counterpart of adding a BOA party via
+ * the GUI.
+ */
+@SuppressWarnings("serial")
+public class ConfiguredBoaParty extends BoaParty {
+
+	private final BoaPartySpec spec;
+
+	public ConfiguredBoaParty(BoaPartySpec spec) {
+		this.spec = spec;
+	}
+
+	@Override
+	public void init(NegotiationInfo info) {
+		try {
+			configure((AcceptanceStrategy) spec.getAcceptanceStrategy().newInstance(),
+					spec.getAcceptanceStrategy().getParameters(),
+					(OfferingStrategy) spec.getBiddingStrategy().newInstance(),
+					spec.getBiddingStrategy().getParameters(),
+					(OpponentModel) spec.getOpponentModel().newInstance(),
+					spec.getOpponentModel().getParameters(),
+					(OMStrategy) spec.getOmStrategy().newInstance(),
+					spec.getOmStrategy().getParameters());
+		} catch (Exception e) {
+			throw new IllegalStateException("Could not create the components of " + spec.getName(), e);
+		}
+		super.init(info);
+	}
+
+	@Override
+	public String getDescription() {
+		return spec.getName();
+	}
+}
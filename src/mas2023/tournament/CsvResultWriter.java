@@ -0,0 +1,77 @@
+package mas2023.tournament;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * Writes the results in the format of the tournament-*.log.csv files of
+ * Genius, restricted to the columns which the headless runner can fill.
+ */
+public class CsvResultWriter implements SessionListener {
+
+	private final PrintWriter out;
+	private final int partiesPerSession;
+
+	public CsvResultWriter(File file, int partiesPerSession) throws IOException {
+		this.out = new PrintWriter(new FileWriter(file));
+		this.partiesPerSession = partiesPerSession;
+		out.println("sep=;");
+		StringBuilder header = new StringBuilder("Run time (s);Round;Exception;deadline;Agreement;#agreeing;"
+				+ "min.util.;max.util.;Dist. to Pareto;Dist. to Nash;Social Welfare");
+		for (String column : new String[] { "Agent", "Utility", "Disc. Util.", "Profile" }) {
+			for (int i = 1; i <= partiesPerSession; i++) {
+				header.append(';').append(column).append(' ').append(i);
+			}
+		}
+		out.println(header);
+	}
+
+	@Override
+	public void sessionFinished(SessionResult result) {
+		double[] utilities = result.getUtilities();
+		double min = result.hasAgreement() ? Double.MAX_VALUE : 0;
+		double max = 0;
+		double welfare = 0;
+		if (result.hasAgreement()) {
+			for (double utility : utilities) {
+				min = Math.min(min, utility);
+				max = Math.max(max, utility);
+				welfare += utility;
+			}
+		}
+		StringBuilder line = new StringBuilder();
+		line.append(String.format(Locale.US, "%.3f", result.getRunTime())).append(';');
+		line.append(result.getRounds()).append(';');
+		if (result.getException() != null) {
+			line.append(result.getException().toString().replace(';', ',').replace('\n', ' '));
+		}
+		line.append(';').append(result.getSession().getDeadlineName());
+		line.append(';').append(result.hasAgreement() ? "Yes" : "No");
+		line.append(';').append(result.hasAgreement() ? partiesPerSession : 1);
+		line.append(String.format(Locale.US, ";%.5f;%.5f", min, max));
+		line.append(';').append(result.getParetoDistance()).append(';').append(result.getNashDistance());
+		line.append(String.format(Locale.US, ";%.5f", welfare));
+		for (int i = 0; i < partiesPerSession; i++) {
+			line.append(';').append(result.getAgents()[i]);
+		}
+		for (int i = 0; i < partiesPerSession; i++) {
+			line.append(';').append(utilities[i]);
+		}
+		for (int i = 0; i < partiesPerSession; i++) {
+			line.append(';').append(result.getDiscountedUtilities()[i]);
+		}
+		for (int i = 0; i < partiesPerSession; i++) {
+			String profile = result.getSession().getProfiles().get(i);
+			line.append(';').append(new File(profile).getName());
+		}
+		out.println(line);
+	}
+
+	@Override
+	public void tournamentFinished() {
+		out.close();
+	}
+}
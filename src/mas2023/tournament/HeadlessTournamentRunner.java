@@ -0,0 +1,167 @@
+package mas2023.tournament;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import mas2023.log.SessionLogWriter;
+
+/**
+ * Runs the tournaments of multilateraltournament.xml without the Genius GUI.
+ * The sessions are independent, so they run on a pool of worker threads; the
+ * results are reported to the listeners as the sessions finish.
+ *
+ * Usage:
+ *
+ * <pre>
+ * HeadlessTournamentRunner [tournament.xml] [-threads N] [-out file.csv] [-party name]... [-binlog dir]
+ *     [-stats file.logStats.xml] [-statsEvery N]
+ * </pre>
+ *
+ * The tournament defaults to genius/multilateraltournament.xml. The
+ * repositories and the profile paths are resolved against the directory of
+ * the tournament file. Every -party adds a party to each tournament: the name
+ * of a BOA party in boapartyrepo.xml, a party of partyrepository.xml or a
+ * class such as mas2023.BoaPartyExample. With -binlog every session is also
+ * logged in the binary session log format of mas2023.log. With -stats the
+ * per agent statistics are kept up to date while the tournament runs, and
+ * written in the logStats format every -statsEvery sessions (default 10).
+ */
+public class HeadlessTournamentRunner {
+
+	private final SessionRunner sessionRunner;
+	private final int threads;
+
+	public HeadlessTournamentRunner(File baseDir, int threads) {
+		this.sessionRunner = new SessionRunner(baseDir);
+		this.threads = threads;
+	}
+
+	/**
+	 * Logs every session in the binary session log format, under the given
+	 * run name; see {@link SessionRunner#setLog}.
+	 */
+	public void setLog(SessionLogWriter logWriter, File logDir, String run) {
+		sessionRunner.setLog(logWriter, logDir, run);
+	}
+
+	/**
+	 * Runs the sessions in parallel and reports every result to the
+	 * listeners as soon as its session finishes, from the calling thread.
+	 *
+	 * @return the results, in the order of the sessions.
+	 */
+	public List<SessionResult> run(List<SessionSpec> sessions, SessionListener... listeners) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		SessionResult[] results = new SessionResult[sessions.size()];
+		try {
+			CompletionService<SessionResult> completion = new ExecutorCompletionService<SessionResult>(executor);
+			Map<Future<SessionResult>, Integer> positions = new HashMap<Future<SessionResult>, Integer>();
+			for (int k = 0; k < sessions.size(); k++) {
+				final SessionSpec session = sessions.get(k);
+				positions.put(completion.submit(new Callable<SessionResult>() {
+					@Override
+					public SessionResult call() {
+						return sessionRunner.run(session);
+					}
+				}), k);
+			}
+			for (int finished = 0; finished < results.length; finished++) {
+				Future<SessionResult> future = completion.take();
+				SessionResult result = future.get();
+				results[positions.get(future)] = result;
+				for (SessionListener listener : listeners) {
+					listener.sessionFinished(result);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+			for (SessionListener listener : listeners) {
+				listener.tournamentFinished();
+			}
+		}
+		return new ArrayList<SessionResult>(Arrays.asList(results));
+	}
+
+	public static void main(String[] args) throws Exception {
+		File tournamentFile = new File("genius/multilateraltournament.xml");
+		int threads = Runtime.getRuntime().availableProcessors();
+		File out = null;
+		List<String> extraParties = new ArrayList<String>();
+		File binaryLogDir = null;
+		File statsFile = null;
+		int statsEvery = 10;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-threads")) {
+				threads = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-out")) {
+				out = new File(args[++i]);
+			} else if (args[i].equals("-binlog")) {
+				binaryLogDir = new File(args[++i]);
+			} else if (args[i].equals("-stats")) {
+				statsFile = new File(args[++i]);
+			} else if (args[i].equals("-statsEvery")) {
+				statsEvery = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-party")) {
+				extraParties.add(args[++i]);
+			} else {
+				tournamentFile = new File(args[i]);
+			}
+		}
+
+		File baseDir = tournamentFile.getAbsoluteFile().getParentFile();
+		Repositories repositories = Repositories.load(baseDir);
+		List<TournamentConfig> tournaments = TournamentConfig.load(tournamentFile, repositories);
+		HeadlessTournamentRunner runner = new HeadlessTournamentRunner(baseDir, threads);
+		String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+		SessionLogWriter logWriter = null;
+		if (binaryLogDir != null) {
+			binaryLogDir.mkdirs();
+			logWriter = new SessionLogWriter();
+		}
+
+		try {
+			for (int t = 0; t < tournaments.size(); t++) {
+				TournamentConfig tournament = tournaments.get(t);
+				for (String party : extraParties) {
+					tournament.getParties().add(repositories.getParty(party));
+				}
+				List<SessionSpec> sessions = tournament.generateSessions(repositories, 0);
+				int partiesPerSession = sessions.isEmpty() ? 0 : sessions.get(0).getParties().size();
+				File csv = out != null && tournaments.size() == 1 ? out
+						: new File(baseDir, "log/tournament-" + timestamp + "-" + t + ".log.csv");
+				if (logWriter != null) {
+					runner.setLog(logWriter, binaryLogDir, timestamp + "-" + t);
+				}
+				System.out.println("Running " + sessions.size() + " sessions on " + threads + " threads, writing "
+						+ csv.getPath());
+				long start = System.currentTimeMillis();
+				CsvResultWriter csvWriter = new CsvResultWriter(csv, partiesPerSession);
+				if (statsFile != null) {
+					File stats = tournaments.size() == 1 ? statsFile
+							: new File(statsFile.getParentFile(), t + "-" + statsFile.getName());
+					runner.run(sessions, csvWriter, new StreamingStatistics(stats, statsEvery));
+				} else {
+					runner.run(sessions, csvWriter);
+				}
+				System.out.println("Finished in " + (System.currentTimeMillis() - start) / 1000.0 + " s");
+			}
+		} finally {
+			if (logWriter != null) {
+				// writes the logs of the sessions which finished, also if a tournament failed
+				logWriter.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package mas2023.tournament;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import genius.core.utility.AbstractUtilitySpace;
+import genius.core.utility.AdditiveUtilitySpace;
+import mas2023.group4.BidCodec;
+import mas2023.group4.LazyOutcomeSpace;
+
+/**
+ * The Pareto frontier and Nash point of the utility spaces of a session, from
+ * which the distances of the tournament logs of Genius are computed: every
+ * bid of the domain is a point with the undiscounted utility of every party,
+ * the frontier holds the points which no other point dominates, and the Nash
+ * point is the point of the frontier with the largest product of the
+ * utilities minus the reservation values.
+ *
+ * The utilities are summed from the contribution tables of the spaces, and
+ * the frontier is kept while the bids are enumerated, so only the frontier is
+ * stored. A tournament plays the same profiles in many sessions, so every
+ * analysis is cached by the key of its scenario. Domains of more than
+ * MAX_BIDS bids, or with other than discrete issues, are not analyzed and get
+ * NaN distances.
+ */
+class OutcomeAnalysis {
+
+	/** Largest number of bids of an analyzed domain */
+	private static final long MAX_BIDS = 1 << 20;
+
+	private static final ConcurrentHashMap<String, OutcomeAnalysis> CACHE = new ConcurrentHashMap<String, OutcomeAnalysis>();
+
+	/** The utilities of every point of the frontier, empty if not analyzed */
+	private final List<double[]> frontier;
+	private final double[] nash;
+
+	private OutcomeAnalysis(List<double[]> frontier, double[] nash) {
+		this.frontier = frontier;
+		this.nash = nash;
+	}
+
+	/**
+	 * @param key
+	 *            identifies the domain and the profiles of the spaces, in
+	 *            their order.
+	 * @return the analysis of the spaces, taken from the cache if the
+	 *         scenario was analyzed before.
+	 */
+	static OutcomeAnalysis get(String key, AbstractUtilitySpace[] spaces) {
+		OutcomeAnalysis analysis = CACHE.get(key);
+		if (analysis == null) {
+			analysis = analyze(spaces);
+			CACHE.putIfAbsent(key, analysis);
+		}
+		return analysis;
+	}
+
+	static OutcomeAnalysis analyze(AbstractUtilitySpace[] spaces) {
+		List<double[]> none = new ArrayList<double[]>();
+		for (AbstractUtilitySpace space : spaces) {
+			if (space == null || !LazyOutcomeSpace.supports(space)) {
+				return new OutcomeAnalysis(none, null);
+			}
+		}
+		BidCodec codec = new BidCodec(spaces[0].getDomain());
+		double size = 1;
+		for (int i = 0; i < codec.getNumberOfIssues(); i++) {
+			size *= codec.getNumberOfValues(i);
+		}
+		if (size > MAX_BIDS || !codec.canPack()) {
+			return new OutcomeAnalysis(none, null);
+		}
+		double[][][] tables = new double[spaces.length][][];
+		double[] reservationValues = new double[spaces.length];
+		for (int a = 0; a < spaces.length; a++) {
+			tables[a] = codec.contributions((AdditiveUtilitySpace) spaces[a]);
+			reservationValues[a] = spaces[a].getReservationValueUndiscounted();
+		}
+		return analyze(codec, (long) size, tables, reservationValues);
+	}
+
+	/**
+	 * @param tables
+	 *            the contribution table of every party, indexed like the
+	 *            codec.
+	 */
+	static OutcomeAnalysis analyze(BidCodec codec, long size, double[][][] tables, double[] reservationValues) {
+		List<double[]> frontier = new ArrayList<double[]>();
+		int[] code = new int[codec.getNumberOfIssues()];
+		double[] point = new double[tables.length];
+		for (long k = 0; k < size; k++) {
+			codec.unpack(k, code);
+			for (int a = 0; a < tables.length; a++) {
+				point[a] = BidCodec.utility(tables[a], code);
+			}
+			addToFrontier(frontier, point);
+		}
+
+		// as BidSpace.getNash of Genius
+		double[] nash = null;
+		double best = -1;
+		for (double[] p : frontier) {
+			double product = 1;
+			for (int a = 0; a < p.length; a++) {
+				product *= p[a] - reservationValues[a];
+			}
+			if (product > best) {
+				best = product;
+				nash = p;
+			}
+		}
+		return new OutcomeAnalysis(frontier, nash);
+	}
+
+	/**
+	 * Adds a copy of the point to the frontier, unless a point of the frontier
+	 * is at least as good for every party, and removes the points which it
+	 * dominates.
+	 */
+	private static void addToFrontier(List<double[]> frontier, double[] point) {
+		for (double[] p : frontier) {
+			if (atLeast(p, point)) {
+				return;
+			}
+		}
+		int kept = 0;
+		for (int f = 0; f < frontier.size(); f++) {
+			double[] p = frontier.get(f);
+			if (!atLeast(point, p)) {
+				frontier.set(kept++, p);
+			}
+		}
+		frontier.subList(kept, frontier.size()).clear();
+		frontier.add(point.clone());
+	}
+
+	private static boolean atLeast(double[] p, double[] q) {
+		for (int a = 0; a < p.length; a++) {
+			if (p[a] < q[a]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the Euclidean distance of the utilities of an outcome to the
+	 *         Nash point, or NaN if not analyzed.
+	 */
+	double getNashDistance(double[] utilities) {
+		return nash == null ? Double.NaN : distance(nash, utilities);
+	}
+
+	/**
+	 * @return the Euclidean distance of the utilities of an outcome to the
+	 *         nearest point of the frontier, or NaN if not analyzed.
+	 */
+	double getParetoDistance(double[] utilities) {
+		if (frontier.isEmpty()) {
+			return Double.NaN;
+		}
+		double nearest = Double.POSITIVE_INFINITY;
+		for (double[] p : frontier) {
+			nearest = Math.min(nearest, distance(p, utilities));
+		}
+		return nearest;
+	}
+
+	private static double distance(double[] p, double[] q) {
+		double sum = 0;
+		for (int a = 0; a < p.length; a++) {
+			sum += (p[a] - q[a]) * (p[a] - q[a]);
+		}
+		return Math.sqrt(sum);
+	}
+}
@@ -0,0 +1,109 @@
+package mas2023.tournament;
+
+import java.util.Arrays;
+
+/**
+ * Streaming estimate of one quantile with the P-square algorithm of Jain
+ * and Chlamtac, which keeps five markers instead of the observations. The
+ * estimate is exact for up to five observations.
+ */
+public class P2Quantile {
+
+	private final double p;
+	private final double[] heights = new double[5];
+	private final int[] positions = { 1, 2, 3, 4, 5 };
+	private final double[] desired;
+	private final double[] increments;
+	private int count;
+
+	public P2Quantile(double p) {
+		this.p = p;
+		desired = new double[] { 1, 1 + 2 * p, 1 + 4 * p, 3 + 2 * p, 5 };
+		increments = new double[] { 0, p / 2, p, (1 + p) / 2, 1 };
+	}
+
+	public P2Quantile(P2Quantile other) {
+		this(other.p);
+		System.arraycopy(other.heights, 0, heights, 0, 5);
+		System.arraycopy(other.positions, 0, positions, 0, 5);
+		System.arraycopy(other.desired, 0, desired, 0, 5);
+		count = other.count;
+	}
+
+	public double getP() {
+		return p;
+	}
+
+	public void add(double x) {
+		if (count < 5) {
+			heights[count++] = x;
+			if (count == 5) {
+				Arrays.sort(heights);
+			}
+			return;
+		}
+		count++;
+
+		int k;
+		if (x < heights[0]) {
+			heights[0] = x;
+			k = 0;
+		} else if (x >= heights[4]) {
+			heights[4] = Math.max(heights[4], x);
+			k = 3;
+		} else {
+			k = 0;
+			while (x >= heights[k + 1]) {
+				k++;
+			}
+		}
+		for (int i = k + 1; i < 5; i++) {
+			positions[i]++;
+		}
+		for (int i = 0; i < 5; i++) {
+			desired[i] += increments[i];
+		}
+
+		for (int i = 1; i <= 3; i++) {
+			double d = desired[i] - positions[i];
+			if ((d >= 1 && positions[i + 1] - positions[i] > 1) || (d <= -1 && positions[i - 1] - positions[i] < -1)) {
+				int sign = d > 0 ? 1 : -1;
+				double candidate = parabolic(i, sign);
+				if (heights[i - 1] < candidate && candidate < heights[i + 1]) {
+					heights[i] = candidate;
+				} else {
+					heights[i] = linear(i, sign);
+				}
+				positions[i] += sign;
+			}
+		}
+	}
+
+	private double parabolic(int i, int d) {
+		return heights[i] + d / (double) (positions[i + 1] - positions[i - 1])
+				* ((positions[i] - positions[i - 1] + d) * (heights[i + 1] - heights[i])
+						/ (positions[i + 1] - positions[i])
+						+ (positions[i + 1] - positions[i] - d) * (heights[i] - heights[i - 1])
+								/ (positions[i] - positions[i - 1]));
+	}
+
+	private double linear(int i, int d) {
+		return heights[i] + d * (heights[i + d] - heights[i]) / (positions[i + d] - positions[i]);
+	}
+
+	/**
+	 * @return the estimated quantile, or NaN without observations.
+	 */
+	public double getQuantile() {
+		if (count == 0) {
+			return Double.NaN;
+		}
+		if (count <= 5) {
+			double[] sorted = Arrays.copyOf(heights, count);
+			Arrays.sort(sorted);
+			int index = (int) Math.round(p * (count - 1));
+			return sorted[index];
+		}
+		return heights[2];
+	}
+}
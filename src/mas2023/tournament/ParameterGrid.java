@@ -0,0 +1,132 @@
+package mas2023.tournament;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * The values to try for the parameters of the four components of a BOA
+ * party. A parameter is named by its component (BS, AS, OM or OMS) and its
+ * BOAparameter name, e.g. BS.e or OM.numberOfRounds. A cell of the grid is
+ * one value for every parameter.
+ */
+public class ParameterGrid {
+
+	public static final String[] COMPONENTS = { "BS", "AS", "OM", "OMS" };
+
+	/** Parameter to the values to try, in the order they were added */
+	private final Map<String, double[]> axes = new LinkedHashMap<String, double[]>();
+
+	/**
+	 * Adds a parameter from a specification such as BS.e=0.1,0.2,0.5 or
+	 * BS.e=0.1:0.5:0.1 (low, high, step).
+	 */
+	public void add(String specification) {
+		int equals = specification.indexOf('=');
+		if (equals < 0) {
+			throw new IllegalArgumentException("Expected parameter=values, got " + specification);
+		}
+		String parameter = specification.substring(0, equals);
+		String values = specification.substring(equals + 1);
+		if (values.contains(":")) {
+			String[] range = values.split(":");
+			add(parameter, Double.parseDouble(range[0]), Double.parseDouble(range[1]), Double.parseDouble(range[2]));
+		} else {
+			String[] list = values.split(",");
+			double[] parsed = new double[list.length];
+			for (int i = 0; i < list.length; i++) {
+				parsed[i] = Double.parseDouble(list[i]);
+			}
+			add(parameter, parsed);
+		}
+	}
+
+	public void add(String parameter, double low, double high, double step) {
+		int count = (int) Math.floor((high - low) / step + 1e-9) + 1;
+		double[] values = new double[count];
+		for (int i = 0; i < count; i++) {
+			// rounded, so that the cache keys do not depend on accumulated errors
+			values[i] = Math.round((low + i * step) * 1e9) / 1e9;
+		}
+		add(parameter, values);
+	}
+
+	public void add(String parameter, double... values) {
+		int dot = parameter.indexOf('.');
+		String component = dot < 0 ? "" : parameter.substring(0, dot);
+		boolean known = false;
+		for (String c : COMPONENTS) {
+			known |= c.equals(component);
+		}
+		if (!known) {
+			throw new IllegalArgumentException("Parameter " + parameter + " should start with BS., AS., OM. or OMS.");
+		}
+		axes.put(parameter, values.clone());
+	}
+
+	/**
+	 * @return the number of cells of the full grid.
+	 */
+	public long size() {
+		long size = 1;
+		for (double[] values : axes.values()) {
+			size *= values.length;
+		}
+		return size;
+	}
+
+	/**
+	 * @return every cell of the grid. The order is stable when values are
+	 *         appended to an axis, so an extended grid starts with the same
+	 *         cells.
+	 */
+	public List<Map<String, Double>> cells() {
+		List<Map<String, Double>> cells = new ArrayList<Map<String, Double>>();
+		cells.add(new TreeMap<String, Double>());
+		for (Map.Entry<String, double[]> axis : axes.entrySet()) {
+			List<Map<String, Double>> extended = new ArrayList<Map<String, Double>>(
+					cells.size() * axis.getValue().length);
+			for (Map<String, Double> cell : cells) {
+				for (double value : axis.getValue()) {
+					Map<String, Double> copy = new TreeMap<String, Double>(cell);
+					copy.put(axis.getKey(), value);
+					extended.add(copy);
+				}
+			}
+			cells = extended;
+		}
+		return cells;
+	}
+
+	/**
+	 * @return count distinct cells, drawn uniformly from the grid with the
+	 *         given random generator, or every cell if the grid is smaller.
+	 */
+	public List<Map<String, Double>> sample(int count, Random random) {
+		List<Map<String, Double>> cells = cells();
+		if (count >= cells.size()) {
+			return cells;
+		}
+		Collections.shuffle(cells, random);
+		return new ArrayList<Map<String, Double>>(cells.subList(0, count));
+	}
+
+	/**
+	 * @return the parameters of the cell which belong to the given component,
+	 *         without the component prefix.
+	 */
+	public static Map<String, Double> parametersOf(Map<String, Double> cell, String component) {
+		Map<String, Double> parameters = new TreeMap<String, Double>();
+		String prefix = component + ".";
+		for (Map.Entry<String, Double> entry : cell.entrySet()) {
+			if (entry.getKey().startsWith(prefix)) {
+				parameters.put(entry.getKey().substring(prefix.length()), entry.getValue());
+			}
+		}
+		return parameters;
+	}
+}
@@ -0,0 +1,240 @@
+package mas2023.tournament;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import genius.core.boaframework.BOA;
+import genius.core.boaframework.BOAparameter;
+
+/**
+ * Runs the Group4 BOA party with every cell of a {@link ParameterGrid}, or a
+ * random sample of it, against the parties and profiles of a tournament. The
+ * sessions run in parallel on the {@link HeadlessTournamentRunner}, and
+ * every finished session is stored in a {@link ResultCache}, so re-running
+ * an extended grid only runs the new cells.
+ *
+ * Usage:
+ *
+ * <pre>
+ * ParameterSweep [tournament.xml] -p BS.e=0.1,0.2,0.5 -p AS.T=0.9:1.0:0.05 ...
+ *     [-samples N] [-seed S] [-base boaPartyName] [-threads N]
+ *     [-cache sweep-cache.tsv] [-out sweep.csv]
+ * </pre>
+ *
+ * Parameters which are not swept keep the value of the base party: the
+ * named BOA party of boapartyrepo.xml, or else the Group4 components with the
+ * defaults of their getParameterSpec. The opponents are the parties of the
+ * tournament, and every opponent is met once per ordered pair of distinct
+ * profiles.
+ */
+public class ParameterSweep {
+
+	private final BoaPartySpec base;
+	private final List<PartySpec> opponents;
+	private final List<String> profiles;
+	private final Repositories repositories;
+	private final TournamentConfig tournament;
+	private final ResultCache cache;
+
+	public ParameterSweep(BoaPartySpec base, TournamentConfig tournament, Repositories repositories,
+			ResultCache cache) {
+		this.base = base;
+		this.tournament = tournament;
+		this.opponents = tournament.getParties();
+		this.profiles = tournament.getProfiles();
+		this.repositories = repositories;
+		this.cache = cache;
+	}
+
+	/**
+	 * @return the Group4 party with the default parameters of its components.
+	 */
+	public static BoaPartySpec defaultGroup4() throws Exception {
+		return new BoaPartySpec("Group4",
+				defaultComponent("mas2023.group4.Group4_BS"),
+				defaultComponent("mas2023.group4.Group4_AS"),
+				defaultComponent("mas2023.group4.Group4_OM"),
+				defaultComponent("mas2023.group4.Group4_OMS"));
+	}
+
+	private static BoaPartySpec.Component defaultComponent(String className) throws Exception {
+		BOA component = (BOA) Class.forName(className).getDeclaredConstructor().newInstance();
+		Map<String, Double> parameters = new HashMap<String, Double>();
+		for (BOAparameter parameter : component.getParameterSpec()) {
+			parameters.put(parameter.getName(), parameter.getLow());
+		}
+		return new BoaPartySpec.Component(className, parameters);
+	}
+
+	/**
+	 * @return the base party with the parameters of the cell.
+	 */
+	public BoaPartySpec configure(String name, Map<String, Double> cell) {
+		return new BoaPartySpec(name,
+				base.getBiddingStrategy().with(ParameterGrid.parametersOf(cell, "BS")),
+				base.getAcceptanceStrategy().with(ParameterGrid.parametersOf(cell, "AS")),
+				base.getOpponentModel().with(ParameterGrid.parametersOf(cell, "OM")),
+				base.getOmStrategy().with(ParameterGrid.parametersOf(cell, "OMS")));
+	}
+
+	/**
+	 * @return the key under which a session is cached: the components and
+	 *         all their parameters, the opponent, the profiles and the
+	 *         deadline.
+	 */
+	static String key(BoaPartySpec party, PartySpec opponent, List<String> sessionProfiles, SessionSpec session) {
+		StringBuilder key = new StringBuilder();
+		for (BoaPartySpec.Component component : new BoaPartySpec.Component[] { party.getBiddingStrategy(),
+				party.getAcceptanceStrategy(), party.getOpponentModel(), party.getOmStrategy() }) {
+			key.append(component.getClassName())
+					.append(new TreeMap<String, Double>(component.getParameters())).append(' ');
+		}
+		key.append("vs ").append(opponent).append(' ').append(sessionProfiles).append(' ')
+				.append(session.getDeadlineName());
+		return key.toString();
+	}
+
+	/**
+	 * Runs the sessions of the cells which are not cached yet and writes a
+	 * summary line per cell to out.
+	 */
+	public void run(List<Map<String, Double>> cells, HeadlessTournamentRunner runner, File out) throws Exception {
+		final List<SessionSpec> sessions = new ArrayList<SessionSpec>();
+		final Map<Integer, String> keys = new HashMap<Integer, String>();
+		Set<String> scheduled = new HashSet<String>();
+		List<List<String>> cellKeys = new ArrayList<List<String>>();
+
+		for (int c = 0; c < cells.size(); c++) {
+			BoaPartySpec party = configure(base.getName() + "#" + c, cells.get(c));
+			List<String> sessionKeys = new ArrayList<String>();
+			for (PartySpec opponent : opponents) {
+				for (int first = 0; first < profiles.size(); first++) {
+					for (int second = 0; second < profiles.size(); second++) {
+						if (first == second) {
+							continue;
+						}
+						List<PartySpec> parties = new ArrayList<PartySpec>(2);
+						parties.add(party);
+						parties.add(opponent);
+						List<String> sessionProfiles = new ArrayList<String>(2);
+						sessionProfiles.add(profiles.get(first));
+						sessionProfiles.add(profiles.get(second));
+						SessionSpec session = new SessionSpec(sessions.size(), parties, sessionProfiles,
+								repositories.getDomain(sessionProfiles.get(0)), tournament.getDeadlineValue(),
+								tournament.getDeadlineType());
+						String key = key(party, opponent, sessionProfiles, session);
+						sessionKeys.add(key);
+						if (cache.get(key) == null && scheduled.add(key)) {
+							keys.put(session.getNumber(), key);
+							sessions.add(session);
+						}
+					}
+				}
+			}
+			cellKeys.add(sessionKeys);
+		}
+
+		System.out.println(cells.size() + " cells, " + sessions.size() + " sessions to run");
+		runner.run(sessions, new SessionListener() {
+			@Override
+			public void sessionFinished(SessionResult result) {
+				cache.put(keys.get(result.getSession().getNumber()), result);
+				if (result.getException() != null) {
+					System.err.println("Session " + result.getSession().getNumber() + ": " + result.getException());
+				}
+			}
+
+			@Override
+			public void tournamentFinished() {
+			}
+		});
+
+		PrintWriter summary = new PrintWriter(new FileWriter(out));
+		try {
+			summary.println("sep=;");
+			summary.println("Cell;Parameters;Sessions;Agreements;Mean util.;Mean disc. util.;Mean opp. util.;Mean rounds");
+			for (int c = 0; c < cells.size(); c++) {
+				int count = 0;
+				int agreements = 0;
+				double util = 0;
+				double discounted = 0;
+				double opponentUtil = 0;
+				double rounds = 0;
+				for (String key : cellKeys.get(c)) {
+					ResultCache.Entry entry = cache.get(key);
+					if (entry == null) {
+						continue;
+					}
+					count++;
+					agreements += entry.hasAgreement() ? 1 : 0;
+					util += entry.getUtilities()[0];
+					discounted += entry.getDiscountedUtilities()[0];
+					opponentUtil += entry.getUtilities()[1];
+					rounds += entry.getRounds();
+				}
+				int n = Math.max(1, count);
+				summary.println(String.format(Locale.US, "%d;%s;%d;%d;%.5f;%.5f;%.5f;%.1f", c, cells.get(c), count,
+						agreements, util / n, discounted / n, opponentUtil / n, rounds / n));
+			}
+		} finally {
+			summary.close();
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		File tournamentFile = new File("genius/multilateraltournament.xml");
+		int threads = Runtime.getRuntime().availableProcessors();
+		File cacheFile = new File("sweep-cache.tsv");
+		File out = new File("sweep.csv");
+		String baseName = null;
+		int samples = -1;
+		long seed = 0;
+		ParameterGrid grid = new ParameterGrid();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-p")) {
+				grid.add(args[++i]);
+			} else if (args[i].equals("-samples")) {
+				samples = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-seed")) {
+				seed = Long.parseLong(args[++i]);
+			} else if (args[i].equals("-base")) {
+				baseName = args[++i];
+			} else if (args[i].equals("-threads")) {
+				threads = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-cache")) {
+				cacheFile = new File(args[++i]);
+			} else if (args[i].equals("-out")) {
+				out = new File(args[++i]);
+			} else {
+				tournamentFile = new File(args[i]);
+			}
+		}
+
+		File baseDir = tournamentFile.getAbsoluteFile().getParentFile();
+		Repositories repositories = Repositories.load(baseDir);
+		BoaPartySpec base = baseName == null ? defaultGroup4() : repositories.getBoaParty(baseName);
+		if (base == null) {
+			throw new IllegalArgumentException("No BOA party " + baseName + " in boapartyrepo.xml");
+		}
+		TournamentConfig tournament = TournamentConfig.load(tournamentFile, repositories).get(0);
+		List<Map<String, Double>> cells = samples < 0 ? grid.cells() : grid.sample(samples, new Random(seed));
+
+		ResultCache cache = new ResultCache(cacheFile);
+		try {
+			new ParameterSweep(base, tournament, repositories, cache).run(cells,
+					new HeadlessTournamentRunner(baseDir, threads), out);
+		} finally {
+			cache.close();
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package mas2023.tournament;
+
+import genius.core.parties.NegotiationParty;
+
+/**
+ * A party which can take part in the sessions of a tournament. Every session
+ * gets its own instance of the party.
+ */
+public interface PartySpec {
+
+	/**
+	 * @return the name of the party, as used in the logs.
+	 */
+	String getName();
+
+	/**
+	 * @return a new, uninitialized instance of the party.
+	 */
+	NegotiationParty create() throws Exception;
+
+	/**
+	 * A party which is created from its class, such as the parties in
+	 * partyrepository.xml and mas2023.BoaPartyExample.
+	 */
+	class ClassParty implements PartySpec {
+
+		private final String classPath;
+
+		public ClassParty(String classPath) {
+			this.classPath = classPath;
+		}
+
+		@Override
+		public String getName() {
+			return classPath.substring(classPath.lastIndexOf('.') + 1);
+		}
+
+		@Override
+		public NegotiationParty create() throws Exception {
+			return (NegotiationParty) Class.forName(classPath).getDeclaredConstructor().newInstance();
+		}
+
+		@Override
+		public String toString() {
+			return classPath;
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package mas2023.tournament;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * The parts of the Genius repositories which are needed to run a tournament
+ * without the GUI: the domain of every profile (domainrepository.xml), the
+ * known parties (partyrepository.xml) and the configured BOA parties
+ * (boapartyrepo.xml).
+ */
+public class Repositories {
+
+	/** Profile path to domain path */
+	private final Map<String, String> domains = new HashMap<String, String>();
+	/** Simple class name to class path of the parties in the party repository */
+	private final Map<String, String> parties = new HashMap<String, String>();
+	/** BOA parties by name */
+	private final Map<String, BoaPartySpec> boaParties = new LinkedHashMap<String, BoaPartySpec>();
+
+	/**
+	 * Reads the repositories from the given Genius directory. Missing files
+	 * are skipped.
+	 */
+	public static Repositories load(File geniusDir) throws Exception {
+		Repositories repositories = new Repositories();
+		File domainRepository = new File(geniusDir, "domainrepository.xml");
+		if (domainRepository.exists()) {
+			repositories.loadDomains(domainRepository);
+		}
+		File partyRepository = new File(geniusDir, "partyrepository.xml");
+		if (partyRepository.exists()) {
+			repositories.loadParties(partyRepository);
+		}
+		File boaRepository = new File(geniusDir, "boapartyrepo.xml");
+		if (boaRepository.exists()) {
+			repositories.loadBoaParties(boaRepository);
+		}
+		return repositories;
+	}
+
+	private void loadDomains(File file) throws Exception {
+		Element root = parse(file);
+		for (Element domain : elements(root, "domainRepItem")) {
+			if (!domain.hasAttribute("url")) {
+				continue;
+			}
+			for (Element profile : elements(domain, "profile")) {
+				domains.put(stripUrl(profile.getAttribute("url")), stripUrl(domain.getAttribute("url")));
+			}
+		}
+	}
+
+	private void loadParties(File file) throws Exception {
+		for (Element party : elements(parse(file), "partyRepItem")) {
+			String classPath = party.getAttribute("classPath");
+			parties.put(classPath.substring(classPath.lastIndexOf('.') + 1), classPath);
+		}
+	}
+
+	private void loadBoaParties(File file) throws Exception {
+		for (Element party : elements(parse(file), "boaparties")) {
+			String name = party.getAttribute("partyName");
+			boaParties.put(name, new BoaPartySpec(name,
+					component(party, "biddingStrategy"),
+					component(party, "acceptanceStrategy"),
+					component(party, "opponentModel"),
+					component(party, "omStrategy")));
+		}
+	}
+
+	private static BoaPartySpec.Component component(Element party, String tag) {
+		Element component = elements(party, tag).get(0);
+		Map<String, Double> parameters = new HashMap<String, Double>();
+		for (Element parameter : elements(component, "parameters")) {
+			parameters.put(parameter.getAttribute("name"), Double.valueOf(parameter.getAttribute("value")));
+		}
+		String classPath = elements(component, "item").get(0).getAttribute("classpath");
+		return new BoaPartySpec.Component(toClassName(classPath), parameters);
+	}
+
+	/**
+	 * The BOA repository refers to components by the path of their class
+	 * file, e.g. C:\...\out\production\MAS3.1BOATest\mas2023\group4\Group4_BS.class.
+	 * This returns the shortest suffix of the path which is a loadable class,
+	 * or the path itself if it already is a class name.
+	 */
+	static String toClassName(String classPath) {
+		if (!classPath.endsWith(".class")) {
+			return classPath;
+		}
+		String[] segments = classPath.substring(0, classPath.length() - ".class".length())
+				.split("[\\\\/]");
+		String name = segments[segments.length - 1];
+		for (int i = segments.length - 2; i >= 0; i--) {
+			try {
+				Class.forName(name);
+				return name;
+			} catch (ClassNotFoundException | LinkageError e) {
+				name = segments[i] + "." + name;
+			}
+		}
+		return name;
+	}
+
+	/**
+	 * @return the domain of the given profile, or null if it is unknown.
+	 */
+	public String getDomain(String profile) {
+		return domains.get(stripUrl(profile));
+	}
+
+	/**
+	 * Resolves a party as named in a tournament: a BOA party of the BOA
+	 * repository, a party of the party repository by its simple class name,
+	 * or else a class path.
+	 */
+	public PartySpec getParty(String name) {
+		BoaPartySpec boaParty = boaParties.get(name);
+		if (boaParty != null) {
+			return boaParty;
+		}
+		String classPath = parties.get(name);
+		return new PartySpec.ClassParty(classPath != null ? classPath : name);
+	}
+
+	public BoaPartySpec getBoaParty(String name) {
+		return boaParties.get(name);
+	}
+
+	public List<BoaPartySpec> getBoaParties() {
+		return new ArrayList<BoaPartySpec>(boaParties.values());
+	}
+
+	static String stripUrl(String url) {
+		return url.startsWith("file:") ? url.substring("file:".length()) : url;
+	}
+
+	static Element parse(File file) throws Exception {
+		return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file).getDocumentElement();
+	}
+
+	/**
+	 * @return all descendants of the element with the given tag.
+	 */
+	static List<Element> elements(Element parent, String tag) {
+		NodeList nodes = parent.getElementsByTagName(tag);
+		List<Element> result = new ArrayList<Element>(nodes.getLength());
+		for (int i = 0; i < nodes.getLength(); i++) {
+			result.add((Element) nodes.item(i));
+		}
+		return result;
+	}
+}
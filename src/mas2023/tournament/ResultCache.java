@@ -0,0 +1,128 @@
+package mas2023.tournament;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * On-disk cache of finished sweep sessions. Every line of the file holds the
+ * key of a session, tab separated from its outcome; a session is appended as
+ * soon as it finishes, so an interrupted sweep loses no work. Sessions which
+ * ended in an exception are not cached and run again.
+ */
+public class ResultCache {
+
+	/**
+	 * The part of a session result which is kept in the cache.
+	 */
+	public static class Entry {
+
+		private final boolean agreement;
+		private final double[] utilities;
+		private final double[] discountedUtilities;
+		private final int rounds;
+
+		public Entry(boolean agreement, double[] utilities, double[] discountedUtilities, int rounds) {
+			this.agreement = agreement;
+			this.utilities = utilities;
+			this.discountedUtilities = discountedUtilities;
+			this.rounds = rounds;
+		}
+
+		public Entry(SessionResult result) {
+			this(result.hasAgreement(), result.getUtilities(), result.getDiscountedUtilities(), result.getRounds());
+		}
+
+		public boolean hasAgreement() {
+			return agreement;
+		}
+
+		public double[] getUtilities() {
+			return utilities;
+		}
+
+		public double[] getDiscountedUtilities() {
+			return discountedUtilities;
+		}
+
+		public int getRounds() {
+			return rounds;
+		}
+
+		private String format() {
+			StringBuilder line = new StringBuilder();
+			line.append(agreement).append('\t').append(rounds).append('\t').append(utilities.length);
+			for (double utility : utilities) {
+				line.append('\t').append(utility);
+			}
+			for (double utility : discountedUtilities) {
+				line.append('\t').append(utility);
+			}
+			return line.toString();
+		}
+
+		private static Entry parse(String[] fields, int from) {
+			boolean agreement = Boolean.parseBoolean(fields[from]);
+			int rounds = Integer.parseInt(fields[from + 1]);
+			int n = Integer.parseInt(fields[from + 2]);
+			double[] utilities = new double[n];
+			double[] discountedUtilities = new double[n];
+			for (int i = 0; i < n; i++) {
+				utilities[i] = Double.parseDouble(fields[from + 3 + i]);
+				discountedUtilities[i] = Double.parseDouble(fields[from + 3 + n + i]);
+			}
+			return new Entry(agreement, utilities, discountedUtilities, rounds);
+		}
+	}
+
+	private final Map<String, Entry> entries = new HashMap<String, Entry>();
+	private final PrintWriter out;
+
+	/**
+	 * Opens the cache, reading the sessions already in the file.
+	 */
+	public ResultCache(File file) throws IOException {
+		if (file.exists()) {
+			BufferedReader in = new BufferedReader(new FileReader(file));
+			try {
+				String line;
+				while ((line = in.readLine()) != null) {
+					String[] fields = line.split("\t");
+					try {
+						entries.put(fields[0], Entry.parse(fields, 1));
+					} catch (RuntimeException e) {
+						// a line which was cut off when a sweep was killed
+					}
+				}
+			} finally {
+				in.close();
+			}
+		}
+		out = new PrintWriter(new FileWriter(file, true), true);
+	}
+
+	/**
+	 * @return the cached outcome of the session, or null if it has not run.
+	 */
+	public synchronized Entry get(String key) {
+		return entries.get(key);
+	}
+
+	public synchronized void put(String key, SessionResult result) {
+		if (result.getException() != null) {
+			return;
+		}
+		Entry entry = new Entry(result);
+		entries.put(key, entry);
+		out.println(key + "\t" + entry.format());
+	}
+
+	public synchronized void close() {
+		out.close();
+	}
+}
@@ -0,0 +1,457 @@
+package mas2023.tournament;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import genius.core.Domain;
+import genius.core.DomainImpl;
+import genius.core.issue.Issue;
+import genius.core.issue.IssueDiscrete;
+import genius.core.issue.Objective;
+import genius.core.issue.ValueDiscrete;
+import genius.core.uncertainty.AdditiveUtilitySpaceFactory;
+import genius.core.utility.AdditiveUtilitySpace;
+import genius.core.utility.Evaluator;
+import genius.core.utility.EvaluatorDiscrete;
+
+/**
+ * Cache of the domains and utility profiles of the templates, so that the
+ * XML of a scenario is parsed once instead of in every session.
+ *
+ * Within the JVM a domain is loaded once and shared by all sessions; a
+ * profile is kept in compiled form (issue weights and normalized value
+ * evaluations) from which every session gets its own utility space. The
+ * compiled domains and profiles are also written to a directory in a small
+ * binary format, so that the next run does not parse the XML either. Every
+ * entry is keyed by the path of the XML file and invalidated when its size
+ * or modification time changes. Since a compiled profile stores the
+ * evaluations by the position of the values in the domain, a profile is also
+ * keyed by a signature of its domain, so that it is compiled again when the
+ * issues or values of the domain change.
+ *
+ * Only domains with discrete issues can be compiled; other domains and their
+ * profiles are parsed from XML once and then copied.
+ */
+public class ScenarioCache {
+
+	private static final int MAGIC = 0x47345343; // G4SC
+	private static final int VERSION = 2;
+
+	private static ScenarioCache shared;
+
+	/** Directory of the binary files, or null to cache in memory only */
+	private final File dir;
+	private final ConcurrentHashMap<String, Domain> domains = new ConcurrentHashMap<String, Domain>();
+	private final ConcurrentHashMap<String, Object> profiles = new ConcurrentHashMap<String, Object>();
+
+	public ScenarioCache(File dir) {
+		this.dir = dir;
+	}
+
+	/**
+	 * @return the cache of the JVM, stored in the directory of the system
+	 *         property "scenariocache" (by default .scenariocache; empty for
+	 *         memory only).
+	 */
+	public static synchronized ScenarioCache shared() {
+		if (shared == null) {
+			String dir = System.getProperty("scenariocache", ".scenariocache");
+			shared = new ScenarioCache(dir.isEmpty() ? null : new File(dir));
+		}
+		return shared;
+	}
+
+	/**
+	 * Compiled profile: per issue of the domain its weight and the normalized
+	 * evaluation of every value, in the order of the domain.
+	 */
+	private static class CompiledProfile {
+
+		final double reservationValue;
+		final double discountFactor;
+		final double[] weights;
+		final double[][] evaluations;
+
+		CompiledProfile(double reservationValue, double discountFactor, double[] weights, double[][] evaluations) {
+			this.reservationValue = reservationValue;
+			this.discountFactor = discountFactor;
+			this.weights = weights;
+			this.evaluations = evaluations;
+		}
+	}
+
+	/**
+	 * Domain restored from the cache, which keeps the name of the domain it
+	 * was compiled from.
+	 */
+	private static class CompiledDomain extends DomainImpl {
+
+		private static final long serialVersionUID = 1L;
+		private final String name;
+
+		CompiledDomain(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+	}
+
+	/**
+	 * @return the domain of the given file. The domain is shared and must not
+	 *         be modified.
+	 */
+	public Domain getDomain(File file) throws Exception {
+		String key = key(file);
+		Domain domain = domains.get(key);
+		if (domain == null) {
+			synchronized (domains) {
+				domain = domains.get(key);
+				if (domain == null) {
+					domain = loadDomain(file);
+					// drop the entries of earlier versions of the file
+					String path = file.getCanonicalPath() + "|";
+					domains.keySet().removeIf(k -> k.startsWith(path));
+					domains.put(key, domain);
+				}
+			}
+		}
+		return domain;
+	}
+
+	/**
+	 * @return a new utility space of the given profile, in the given domain
+	 *         as returned by {@link #getDomain(File)}.
+	 */
+	public AdditiveUtilitySpace getUtilitySpace(Domain domain, File file) throws Exception {
+		String signature = signature(domain);
+		String key = key(file) + "|" + signature;
+		Object profile = profiles.get(key);
+		if (profile == null) {
+			synchronized (profiles) {
+				profile = profiles.get(key);
+				if (profile == null) {
+					profile = loadProfile(domain, signature, file);
+					// drop the entries of earlier versions of the file
+					String path = file.getCanonicalPath() + "|";
+					profiles.keySet().removeIf(k -> k.startsWith(path));
+					profiles.put(key, profile);
+				}
+			}
+		}
+		if (profile instanceof CompiledProfile) {
+			return toUtilitySpace(domain, (CompiledProfile) profile);
+		}
+		return (AdditiveUtilitySpace) ((AdditiveUtilitySpace) profile).copy();
+	}
+
+	private Domain loadDomain(File file) throws Exception {
+		File binary = binary(file, ".domain");
+		if (binary != null && binary.exists()) {
+			try {
+				Domain domain = readDomain(binary, file);
+				if (domain != null) {
+					return domain;
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		Domain domain = new DomainImpl(file);
+		if (binary != null && isDiscrete(domain)) {
+			writeDomain(binary, file, domain);
+		}
+		return domain;
+	}
+
+	private Object loadProfile(Domain domain, String signature, File file) throws Exception {
+		File binary = binary(file, ".profile");
+		if (binary != null && binary.exists() && isDiscrete(domain)) {
+			try {
+				CompiledProfile profile = readProfile(binary, file, signature, domain);
+				if (profile != null) {
+					return profile;
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		AdditiveUtilitySpace utilitySpace = new AdditiveUtilitySpace(domain, file.getPath());
+		CompiledProfile profile = compile(domain, utilitySpace);
+		if (profile == null) {
+			return utilitySpace;
+		}
+		if (binary != null) {
+			writeProfile(binary, file, signature, domain, profile);
+		}
+		return profile;
+	}
+
+	private static boolean isDiscrete(Domain domain) {
+		for (Issue issue : domain.getIssues()) {
+			if (!(issue instanceof IssueDiscrete)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the compiled form of the utility space, or null if it has other
+	 *         than discrete issues and evaluators.
+	 */
+	private static CompiledProfile compile(Domain domain, AdditiveUtilitySpace utilitySpace) throws Exception {
+		if (!isDiscrete(domain)) {
+			return null;
+		}
+		List<Issue> issues = domain.getIssues();
+		double[] weights = new double[issues.size()];
+		double[][] evaluations = new double[issues.size()][];
+		for (int i = 0; i < issues.size(); i++) {
+			IssueDiscrete issue = (IssueDiscrete) issues.get(i);
+			Evaluator evaluator = utilitySpace.getEvaluator(issue.getNumber());
+			if (!(evaluator instanceof EvaluatorDiscrete)) {
+				return null;
+			}
+			weights[i] = utilitySpace.getWeight(issue.getNumber());
+			evaluations[i] = new double[issue.getNumberOfValues()];
+			for (int j = 0; j < evaluations[i].length; j++) {
+				Double evaluation = ((EvaluatorDiscrete) evaluator).getEvaluation(issue.getValue(j));
+				evaluations[i][j] = evaluation == null ? 0 : evaluation;
+			}
+		}
+		return new CompiledProfile(utilitySpace.getReservationValueUndiscounted(),
+				utilitySpace.getDiscountFactor(), weights, evaluations);
+	}
+
+	private static AdditiveUtilitySpace toUtilitySpace(Domain domain, CompiledProfile profile) {
+		AdditiveUtilitySpaceFactory factory = new AdditiveUtilitySpaceFactory(domain);
+		List<IssueDiscrete> issues = factory.getIssues();
+		for (int i = 0; i < issues.size(); i++) {
+			IssueDiscrete issue = issues.get(i);
+			factory.setWeight(issue, profile.weights[i]);
+			for (int j = 0; j < profile.evaluations[i].length; j++) {
+				factory.setUtility(issue, issue.getValue(j), profile.evaluations[i][j]);
+			}
+		}
+		AdditiveUtilitySpace utilitySpace = factory.getUtilitySpace();
+		utilitySpace.setReservationValue(profile.reservationValue);
+		utilitySpace.setDiscount(profile.discountFactor);
+		return utilitySpace;
+	}
+
+	private void writeDomain(File binary, File source, Domain domain) {
+		try {
+			DataOutputStream out = create(binary, source, "");
+			try {
+				out.writeUTF(domain.getName() == null ? "" : domain.getName());
+				List<Issue> issues = domain.getIssues();
+				out.writeInt(issues.size());
+				for (Issue issue : issues) {
+					IssueDiscrete discrete = (IssueDiscrete) issue;
+					out.writeUTF(discrete.getName());
+					out.writeInt(discrete.getNumber());
+					out.writeInt(discrete.getNumberOfValues());
+					for (ValueDiscrete value : discrete.getValues()) {
+						out.writeUTF(value.getValue());
+					}
+				}
+			} finally {
+				out.close();
+			}
+			commit(binary);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * @return the domain stored in the binary file, or null if it is stale.
+	 */
+	private Domain readDomain(File binary, File source) throws IOException {
+		DataInputStream in = open(binary, source, "");
+		if (in == null) {
+			return null;
+		}
+		try {
+			CompiledDomain domain = new CompiledDomain(in.readUTF());
+			Objective root = new Objective(null, "root", 0);
+			int issues = in.readInt();
+			for (int i = 0; i < issues; i++) {
+				String name = in.readUTF();
+				int number = in.readInt();
+				String[] values = new String[in.readInt()];
+				for (int j = 0; j < values.length; j++) {
+					values[j] = in.readUTF();
+				}
+				IssueDiscrete issue = new IssueDiscrete(name, number, values);
+				issue.setParent(root);
+				root.addChild(issue);
+			}
+			domain.setObjectivesRoot(root);
+			return domain;
+		} finally {
+			in.close();
+		}
+	}
+
+	private void writeProfile(File binary, File source, String signature, Domain domain, CompiledProfile profile) {
+		try {
+			DataOutputStream out = create(binary, source, signature);
+			try {
+				out.writeDouble(profile.reservationValue);
+				out.writeDouble(profile.discountFactor);
+				out.writeInt(profile.weights.length);
+				for (int i = 0; i < profile.weights.length; i++) {
+					out.writeInt(domain.getIssues().get(i).getNumber());
+					out.writeDouble(profile.weights[i]);
+					out.writeInt(profile.evaluations[i].length);
+					for (double evaluation : profile.evaluations[i]) {
+						out.writeDouble(evaluation);
+					}
+				}
+			} finally {
+				out.close();
+			}
+			commit(binary);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * @return the profile stored in the binary file, or null if it is stale
+	 *         or was compiled for another domain.
+	 */
+	private CompiledProfile readProfile(File binary, File source, String signature, Domain domain)
+			throws IOException {
+		DataInputStream in = open(binary, source, signature);
+		if (in == null) {
+			return null;
+		}
+		try {
+			double reservationValue = in.readDouble();
+			double discountFactor = in.readDouble();
+			List<Issue> issues = domain.getIssues();
+			if (in.readInt() != issues.size()) {
+				return null;
+			}
+			double[] weights = new double[issues.size()];
+			double[][] evaluations = new double[issues.size()][];
+			for (int i = 0; i < weights.length; i++) {
+				IssueDiscrete issue = (IssueDiscrete) issues.get(i);
+				if (in.readInt() != issue.getNumber()) {
+					return null;
+				}
+				weights[i] = in.readDouble();
+				evaluations[i] = new double[in.readInt()];
+				if (evaluations[i].length != issue.getNumberOfValues()) {
+					return null;
+				}
+				for (int j = 0; j < evaluations[i].length; j++) {
+					evaluations[i][j] = in.readDouble();
+				}
+			}
+			return new CompiledProfile(reservationValue, discountFactor, weights, evaluations);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Opens a binary file for writing to a temporary file, with the header
+	 * identifying the source and the signature of the domain it depends on.
+	 */
+	private static DataOutputStream create(File binary, File source, String signature) throws IOException {
+		binary.getParentFile().mkdirs();
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(new File(binary.getPath() + ".tmp"))));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeUTF(source.getCanonicalPath());
+		out.writeLong(source.length());
+		out.writeLong(source.lastModified());
+		out.writeUTF(signature);
+		return out;
+	}
+
+	private static void commit(File binary) throws IOException {
+		Files.move(new File(binary.getPath() + ".tmp").toPath(), binary.toPath(),
+				StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * @return the binary file positioned after its header, or null if it was
+	 *         written for another version or state of the source.
+	 */
+	private static DataInputStream open(File binary, File source, String signature) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(binary)));
+		if (in.readInt() == MAGIC && in.readInt() == VERSION && in.readUTF().equals(source.getCanonicalPath())
+				&& in.readLong() == source.length() && in.readLong() == source.lastModified()
+				&& in.readUTF().equals(signature)) {
+			return in;
+		}
+		in.close();
+		return null;
+	}
+
+	/**
+	 * @return the binary file of a source, named after the hash of its path,
+	 *         or null without a cache directory.
+	 */
+	private File binary(File source, String extension) throws IOException {
+		if (dir == null) {
+			return null;
+		}
+		String path = source.getCanonicalPath();
+		String name = source.getName().replaceAll("\\.xml$", "");
+		return new File(dir, name + "-" + Integer.toHexString(path.hashCode()) + extension);
+	}
+
+	/**
+	 * @return a hash of the name, the issues and the values of the domain, in
+	 *         their order.
+	 */
+	static String signature(Domain domain) {
+		StringBuilder text = new StringBuilder(String.valueOf(domain.getName()));
+		for (Issue issue : domain.getIssues()) {
+			text.append('\n').append(issue.getNumber()).append(':').append(issue.getName());
+			if (issue instanceof IssueDiscrete) {
+				for (ValueDiscrete value : ((IssueDiscrete) issue).getValues()) {
+					text.append('\t').append(value.getValue());
+				}
+			} else {
+				text.append('\t').append(issue.getClass().getName());
+			}
+		}
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.toString().getBytes(StandardCharsets.UTF_8));
+			StringBuilder hex = new StringBuilder();
+			for (int i = 0; i < 16; i++) {
+				hex.append(String.format("%02x", hash[i]));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String key(File file) throws IOException {
+		return file.getCanonicalPath() + "|" + file.length() + "|" + file.lastModified();
+	}
+}
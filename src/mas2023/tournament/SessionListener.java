@@ -0,0 +1,15 @@
+package mas2023.tournament;
+
+/**
+ * Receives the results of a tournament. The results are delivered in the
+ * order in which the sessions finish, from a single thread.
+ */
+public interface SessionListener {
+
+	void sessionFinished(SessionResult result);
+
+	/**
+	 * Called once after the last session.
+	 */
+	void tournamentFinished();
+}
@@ -0,0 +1,99 @@
+package mas2023.tournament;
+
+import genius.core.Bid;
+
+/**
+ * The outcome of one session.
+ */
+public class SessionResult {
+
+	private final SessionSpec session;
+	private final String[] agents;
+	private final Bid agreement;
+	private final double[] utilities;
+	private final double[] discountedUtilities;
+	private final double nashDistance;
+	private final double paretoDistance;
+	private final int rounds;
+	private final double runTime;
+	private final Throwable exception;
+
+	public SessionResult(SessionSpec session, String[] agents, Bid agreement, double[] utilities,
+			double[] discountedUtilities, double nashDistance, double paretoDistance, int rounds, double runTime,
+			Throwable exception) {
+		this.session = session;
+		this.agents = agents;
+		this.agreement = agreement;
+		this.utilities = utilities;
+		this.discountedUtilities = discountedUtilities;
+		this.nashDistance = nashDistance;
+		this.paretoDistance = paretoDistance;
+		this.rounds = rounds;
+		this.runTime = runTime;
+		this.exception = exception;
+	}
+
+	public SessionSpec getSession() {
+		return session;
+	}
+
+	/**
+	 * @return the agent ids of the parties, e.g. Group4@0.
+	 */
+	public String[] getAgents() {
+		return agents;
+	}
+
+	/**
+	 * @return the accepted bid, or null if there is no agreement.
+	 */
+	public Bid getAgreement() {
+		return agreement;
+	}
+
+	public boolean hasAgreement() {
+		return agreement != null;
+	}
+
+	public double[] getUtilities() {
+		return utilities;
+	}
+
+	public double[] getDiscountedUtilities() {
+		return discountedUtilities;
+	}
+
+	/**
+	 * @return the distance of the undiscounted utilities of the outcome to
+	 *         the Nash point, or NaN if unknown.
+	 */
+	public double getNashDistance() {
+		return nashDistance;
+	}
+
+	/**
+	 * @return the distance of the undiscounted utilities of the outcome to
+	 *         the nearest Pareto optimal bid, or NaN if unknown.
+	 */
+	public double getParetoDistance() {
+		return paretoDistance;
+	}
+
+	public int getRounds() {
+		return rounds;
+	}
+
+	/**
+	 * @return the run time of the session in seconds.
+	 */
+	public double getRunTime() {
+		return runTime;
+	}
+
+	/**
+	 * @return the exception which ended the session, or null.
+	 */
+	public Throwable getException() {
+		return exception;
+	}
+}
@@ -0,0 +1,209 @@
+package mas2023.tournament;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import genius.core.AgentID;
+import genius.core.Bid;
+import genius.core.Deadline;
+import genius.core.DeadlineType;
+import genius.core.Domain;
+import genius.core.actions.Accept;
+import genius.core.actions.Action;
+import genius.core.actions.EndNegotiation;
+import genius.core.actions.Offer;
+import genius.core.parties.NegotiationInfo;
+import genius.core.parties.NegotiationParty;
+import genius.core.persistent.DefaultPersistentDataContainer;
+import genius.core.persistent.PersistentDataType;
+import genius.core.timeline.ContinuousTimeline;
+import genius.core.timeline.DiscreteTimeline;
+import genius.core.timeline.TimeLineInfo;
+import genius.core.utility.AbstractUtilitySpace;
+import genius.core.utility.AdditiveUtilitySpace;
+import mas2023.log.SessionLogWriter;
+
+/**
+ * Runs a single session under the stacked alternating offers protocol, as
+ * the Genius GUI does for multilateral tournaments: the parties take turns,
+ * every action is sent to all other parties, and the session ends when all
+ * other parties accepted the last offer, a party walks away or the deadline
+ * is reached. The result also holds the distances of the outcome to the Nash
+ * point and to the Pareto frontier, see {@link OutcomeAnalysis}.
+ *
+ * A runner holds no state, so sessions can be run concurrently as long as
+ * every session gets its own party instances.
+ */
+public class SessionRunner {
+
+	private static final List<Class<? extends Action>> OPENING_ACTIONS = Arrays
+			.<Class<? extends Action>> asList(Offer.class, EndNegotiation.class);
+	private static final List<Class<? extends Action>> ACTIONS = Arrays
+			.<Class<? extends Action>> asList(Accept.class, Offer.class, EndNegotiation.class);
+
+	/** Directory against which the profile and domain paths are resolved */
+	private final File baseDir;
+	/** Writer, directory and run name of the binary session logs, or null */
+	private SessionLogWriter logWriter;
+	private File logDir;
+	private String logRun;
+	/** Cache of the parsed domains and profiles */
+	private ScenarioCache scenarios = ScenarioCache.shared();
+
+	public SessionRunner(File baseDir) {
+		this.baseDir = baseDir;
+	}
+
+	/**
+	 * Loads the domains and profiles through the given cache instead of the
+	 * cache shared by the JVM.
+	 */
+	public void setScenarioCache(ScenarioCache scenarios) {
+		this.scenarios = scenarios;
+	}
+
+	/**
+	 * Logs every session in the binary session log format, as
+	 * Log-Session_&lt;run&gt;_&lt;number&gt;.bin in the given directory. The
+	 * session numbers start at 1 for every tournament, so the run (e.g. the
+	 * timestamp and index of the tournament) keeps the logs of different
+	 * tournaments apart.
+	 */
+	public void setLog(SessionLogWriter logWriter, File logDir, String run) {
+		this.logWriter = logWriter;
+		this.logDir = logDir;
+		this.logRun = run;
+	}
+
+	public SessionResult run(SessionSpec session) {
+		int n = session.getParties().size();
+		String[] agents = new String[n];
+		AbstractUtilitySpace[] spaces = new AbstractUtilitySpace[n];
+		double[] utilities = new double[n];
+		double[] discountedUtilities = new double[n];
+		long start = System.nanoTime();
+		int round = 0;
+		Bid agreement = null;
+		Throwable exception = null;
+		SessionLogWriter.SessionLog log = logWriter == null ? null
+				: logWriter.open(new File(logDir, "Log-Session_" + logRun + "_" + session.getNumber() + ".bin"),
+						session.getDomain(), session.getDeadlineName());
+		TimeLineInfo timeline = session.getDeadlineType() == DeadlineType.ROUND
+				? new DiscreteTimeline(session.getDeadlineValue())
+				: new ContinuousTimeline(session.getDeadlineValue());
+
+		try {
+			Domain domain = scenarios.getDomain(new File(resolve(session.getDomain())));
+			List<NegotiationParty> parties = new ArrayList<NegotiationParty>(n);
+			AgentID[] ids = new AgentID[n];
+			for (int i = 0; i < n; i++) {
+				PartySpec party = session.getParties().get(i);
+				agents[i] = party.getName() + "@" + i;
+				ids[i] = new AgentID(agents[i]);
+				spaces[i] = scenarios.getUtilitySpace(domain, new File(resolve(session.getProfiles().get(i))));
+				NegotiationParty instance = party.create();
+				instance.init(new NegotiationInfo(spaces[i], null, null,
+						new Deadline(session.getDeadlineValue(), session.getDeadlineType()), timeline,
+						session.getNumber() * 31L + i, ids[i],
+						new DefaultPersistentDataContainer(null, PersistentDataType.DISABLED)));
+				parties.add(instance);
+			}
+
+			Bid lastOffer = null;
+			int accepts = 0;
+			negotiation: while (!timeline.isDeadlineReached()) {
+				round++;
+				for (int i = 0; i < n; i++) {
+					Action action = parties.get(i).chooseAction(lastOffer == null ? OPENING_ACTIONS : ACTIONS);
+					if (log != null) {
+						log.action(round, i + 1, timeline.getTime(), agents[i], action);
+					}
+					for (int j = 0; j < n; j++) {
+						if (j != i) {
+							parties.get(j).receiveMessage(ids[i], action);
+						}
+					}
+					if (action instanceof Offer) {
+						lastOffer = ((Offer) action).getBid();
+						accepts = 0;
+					} else if (action instanceof Accept && lastOffer != null) {
+						accepts++;
+						if (accepts == n - 1) {
+							agreement = lastOffer;
+							break negotiation;
+						}
+					} else {
+						break negotiation;
+					}
+					if (timeline.isDeadlineReached()) {
+						break negotiation;
+					}
+				}
+				if (timeline instanceof DiscreteTimeline) {
+					((DiscreteTimeline) timeline).increment();
+				}
+			}
+			if (agreement == null && timeline.isDeadlineReached()) {
+				// the logs count the round in which the deadline was detected
+				round++;
+			}
+
+			for (int i = 0; i < n; i++) {
+				if (agreement != null) {
+					utilities[i] = spaces[i].getUtility(agreement);
+					discountedUtilities[i] = spaces[i].getUtilityWithDiscount(agreement, timeline.getTime());
+				} else {
+					utilities[i] = spaces[i].getReservationValueUndiscounted();
+					discountedUtilities[i] = spaces[i].getReservationValueWithDiscount(timeline.getTime());
+				}
+				parties.get(i).negotiationEnded(agreement);
+			}
+			if (log != null && agreement != null) {
+				log.agreement(agreement, utilities);
+			}
+		} catch (Throwable e) {
+			exception = e;
+			agreement = null;
+			Arrays.fill(utilities, 0);
+			Arrays.fill(discountedUtilities, 0);
+		}
+		if (log != null) {
+			log.close();
+		}
+		double runTime = (System.nanoTime() - start) / 1e9;
+
+		// not part of the run time, since the first session of a scenario analyzes all its bids
+		double nashDistance = Double.NaN;
+		double paretoDistance = Double.NaN;
+		if (exception == null) {
+			OutcomeAnalysis analysis = OutcomeAnalysis.get(scenarioKey(session), spaces);
+			nashDistance = analysis.getNashDistance(utilities);
+			paretoDistance = analysis.getParetoDistance(utilities);
+		}
+		return new SessionResult(session, agents, agreement, utilities, discountedUtilities, nashDistance,
+				paretoDistance, round, runTime, exception);
+	}
+
+	/**
+	 * @return the domain and profiles of the session, with the size and
+	 *         modification time of their files.
+	 */
+	private String scenarioKey(SessionSpec session) {
+		StringBuilder key = new StringBuilder();
+		List<String> paths = new ArrayList<String>(session.getProfiles());
+		paths.add(0, session.getDomain());
+		for (String path : paths) {
+			File file = new File(resolve(path));
+			key.append(file.getAbsolutePath()).append('|').append(file.length()).append('|')
+					.append(file.lastModified()).append('\n');
+		}
+		return key.toString();
+	}
+
+	private String resolve(String path) {
+		File file = new File(path);
+		return file.isAbsolute() ? path : new File(baseDir, path).getPath();
+	}
+}
@@ -0,0 +1,63 @@
+package mas2023.tournament;
+
+import java.util.List;
+
+import genius.core.DeadlineType;
+
+/**
+ * One session of a tournament: the parties, the profile of each party and the
+ * deadline. Party i negotiates with profile i.
+ */
+public class SessionSpec {
+
+	private final int number;
+	private final List<PartySpec> parties;
+	private final List<String> profiles;
+	private final String domain;
+	private final int deadlineValue;
+	private final DeadlineType deadlineType;
+
+	public SessionSpec(int number, List<PartySpec> parties, List<String> profiles, String domain,
+			int deadlineValue, DeadlineType deadlineType) {
+		this.number = number;
+		this.parties = parties;
+		this.profiles = profiles;
+		this.domain = domain;
+		this.deadlineValue = deadlineValue;
+		this.deadlineType = deadlineType;
+	}
+
+	/**
+	 * @return the position of this session in the tournament, starting at 0.
+	 */
+	public int getNumber() {
+		return number;
+	}
+
+	public List<PartySpec> getParties() {
+		return parties;
+	}
+
+	public List<String> getProfiles() {
+		return profiles;
+	}
+
+	public String getDomain() {
+		return domain;
+	}
+
+	public int getDeadlineValue() {
+		return deadlineValue;
+	}
+
+	public DeadlineType getDeadlineType() {
+		return deadlineType;
+	}
+
+	/**
+	 * @return the deadline as written in the tournament logs, e.g. 180rounds.
+	 */
+	public String getDeadlineName() {
+		return deadlineValue + (deadlineType == DeadlineType.ROUND ? "rounds" : "s");
+	}
+}
@@ -0,0 +1,319 @@
+package mas2023.tournament;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Per agent statistics of a tournament, updated as every session finishes
+ * instead of computed at the end. It keeps the totals and means of the
+ * logStats.xml files of Genius, including the distances of the outcomes to
+ * the Nash point and the Pareto frontier. For the utility and for both
+ * distances it also keeps the variance (Welford's algorithm) and streaming
+ * estimates of the 10th, 50th and 90th percentile, in constant memory per
+ * agent.
+ *
+ * A snapshot in the logStats format can be written at any time, and is
+ * written every snapshotInterval sessions if a snapshot file is set, so a
+ * long tournament always has up to date partial statistics.
+ */
+public class StreamingStatistics implements SessionListener {
+
+	private static final double[] QUANTILES = { 0.1, 0.5, 0.9 };
+
+	/**
+	 * Total, mean, variance and quantiles of a stream of observations.
+	 */
+	public static class Distribution {
+
+		private int count;
+		private double total;
+		/** Welford's running mean and sum of squared deviations */
+		private double mean;
+		private double m2;
+		private final P2Quantile[] quantiles = new P2Quantile[QUANTILES.length];
+
+		Distribution() {
+			for (int q = 0; q < QUANTILES.length; q++) {
+				quantiles[q] = new P2Quantile(QUANTILES[q]);
+			}
+		}
+
+		Distribution(Distribution other) {
+			count = other.count;
+			total = other.total;
+			mean = other.mean;
+			m2 = other.m2;
+			for (int q = 0; q < QUANTILES.length; q++) {
+				quantiles[q] = new P2Quantile(other.quantiles[q]);
+			}
+		}
+
+		/**
+		 * Adds an observation, unless it is NaN.
+		 */
+		void add(double x) {
+			if (Double.isNaN(x)) {
+				return;
+			}
+			count++;
+			total += x;
+			double delta = x - mean;
+			mean += delta / count;
+			m2 += delta * (x - mean);
+			for (P2Quantile quantile : quantiles) {
+				quantile.add(x);
+			}
+		}
+
+		public int getCount() {
+			return count;
+		}
+
+		public double getTotal() {
+			return total;
+		}
+
+		public double getMean() {
+			return count == 0 ? 0 : total / count;
+		}
+
+		/**
+		 * @return the sample variance.
+		 */
+		public double getVariance() {
+			return count < 2 ? 0 : m2 / (count - 1);
+		}
+
+		/**
+		 * @return the estimated quantile, for p = 0.1, 0.5 or 0.9.
+		 */
+		public double getQuantile(double p) {
+			for (P2Quantile quantile : quantiles) {
+				if (quantile.getP() == p) {
+					return quantile.getQuantile();
+				}
+			}
+			throw new IllegalArgumentException("No sketch for quantile " + p);
+		}
+	}
+
+	/**
+	 * The statistics of one agent.
+	 */
+	public static class AgentStatistics {
+
+		private int sessions;
+		private int agreements;
+		private double totalDiscounted;
+		private double totalWelfare;
+		private final Distribution utility;
+		/** Over the sessions of which the distances are known */
+		private final Distribution nashDistance;
+		private final Distribution paretoDistance;
+
+		AgentStatistics() {
+			utility = new Distribution();
+			nashDistance = new Distribution();
+			paretoDistance = new Distribution();
+		}
+
+		AgentStatistics(AgentStatistics other) {
+			sessions = other.sessions;
+			agreements = other.agreements;
+			totalDiscounted = other.totalDiscounted;
+			totalWelfare = other.totalWelfare;
+			utility = new Distribution(other.utility);
+			nashDistance = new Distribution(other.nashDistance);
+			paretoDistance = new Distribution(other.paretoDistance);
+		}
+
+		void add(double utility, double discounted, double welfare, boolean agreement, double nashDistance,
+				double paretoDistance) {
+			sessions++;
+			agreements += agreement ? 1 : 0;
+			totalDiscounted += discounted;
+			totalWelfare += welfare;
+			this.utility.add(utility);
+			this.nashDistance.add(nashDistance);
+			this.paretoDistance.add(paretoDistance);
+		}
+
+		public int getSessions() {
+			return sessions;
+		}
+
+		public int getAgreements() {
+			return agreements;
+		}
+
+		public double getMeanUndiscounted() {
+			return utility.getMean();
+		}
+
+		public double getMeanDiscounted() {
+			return sessions == 0 ? 0 : totalDiscounted / sessions;
+		}
+
+		public double getMeanWelfare() {
+			return sessions == 0 ? 0 : totalWelfare / sessions;
+		}
+
+		/**
+		 * @return the sample variance of the undiscounted utility.
+		 */
+		public double getVariance() {
+			return utility.getVariance();
+		}
+
+		/**
+		 * @return the estimated quantile of the undiscounted utility, for
+		 *         p = 0.1, 0.5 or 0.9.
+		 */
+		public double getQuantile(double p) {
+			return utility.getQuantile(p);
+		}
+
+		public Distribution getUtility() {
+			return utility;
+		}
+
+		public Distribution getNashDistance() {
+			return nashDistance;
+		}
+
+		public Distribution getParetoDistance() {
+			return paretoDistance;
+		}
+	}
+
+	private final Map<String, AgentStatistics> agents = new LinkedHashMap<String, AgentStatistics>();
+	private int sessions;
+	private File snapshotFile;
+	private int snapshotInterval;
+
+	public StreamingStatistics() {
+	}
+
+	/**
+	 * Writes a snapshot to the file after every interval sessions and at the
+	 * end of the tournament.
+	 */
+	public StreamingStatistics(File snapshotFile, int snapshotInterval) {
+		this.snapshotFile = snapshotFile;
+		this.snapshotInterval = Math.max(1, snapshotInterval);
+	}
+
+	@Override
+	public void sessionFinished(SessionResult result) {
+		boolean snapshot;
+		synchronized (this) {
+			double welfare = 0;
+			for (double utility : result.getUtilities()) {
+				welfare += utility;
+			}
+			for (int i = 0; i < result.getUtilities().length; i++) {
+				String name = result.getSession().getParties().get(i).toString();
+				AgentStatistics statistics = agents.get(name);
+				if (statistics == null) {
+					statistics = new AgentStatistics();
+					agents.put(name, statistics);
+				}
+				statistics.add(result.getUtilities()[i], result.getDiscountedUtilities()[i], welfare,
+						result.hasAgreement(), result.getNashDistance(), result.getParetoDistance());
+			}
+			sessions++;
+			snapshot = snapshotFile != null && sessions % snapshotInterval == 0;
+		}
+		if (snapshot) {
+			writeSnapshot(snapshotFile);
+		}
+	}
+
+	@Override
+	public void tournamentFinished() {
+		if (snapshotFile != null) {
+			writeSnapshot(snapshotFile);
+		}
+	}
+
+	/**
+	 * @return a copy of the statistics so far, per agent.
+	 */
+	public synchronized Map<String, AgentStatistics> snapshot() {
+		Map<String, AgentStatistics> copy = new LinkedHashMap<String, AgentStatistics>();
+		for (Map.Entry<String, AgentStatistics> entry : agents.entrySet()) {
+			copy.put(entry.getKey(), new AgentStatistics(entry.getValue()));
+		}
+		return copy;
+	}
+
+	public synchronized int getSessions() {
+		return sessions;
+	}
+
+	/**
+	 * Writes the statistics so far in the format of the logStats.xml files.
+	 * The file is replaced atomically, so a reader never sees a partial
+	 * snapshot.
+	 */
+	public void writeSnapshot(File file) {
+		Map<String, AgentStatistics> snapshot = snapshot();
+		try {
+			File temporary = new File(file.getPath() + ".tmp");
+			PrintWriter out = new PrintWriter(temporary, "UTF-8");
+			try {
+				out.println("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>");
+				out.println("<agentsStatistics>");
+				for (Map.Entry<String, AgentStatistics> entry : snapshot.entrySet()) {
+					AgentStatistics s = entry.getValue();
+					out.println("    <statistics>");
+					element(out, "agentname", entry.getKey().replace("&", "&amp;").replace("<", "&lt;"));
+					element(out, "totalUndiscountedUtility", s.utility.getTotal());
+					element(out, "totalDiscountedUtility", s.totalDiscounted);
+					element(out, "numberOfSessions", s.sessions);
+					element(out, "totalNashDist", s.nashDistance.getTotal());
+					element(out, "totalWelfare", s.totalWelfare);
+					element(out, "totalParetoDistance", s.paretoDistance.getTotal());
+					element(out, "meanDiscounted", s.getMeanDiscounted());
+					element(out, "meanNashDistance", s.nashDistance.getMean());
+					element(out, "meanParetoDistance", s.paretoDistance.getMean());
+					element(out, "meanUndiscounted", s.getMeanUndiscounted());
+					element(out, "meanWelfare", s.getMeanWelfare());
+					element(out, "numberOfAgreements", s.agreements);
+					distribution(out, "Undiscounted", s.utility);
+					distribution(out, "NashDistance", s.nashDistance);
+					distribution(out, "ParetoDistance", s.paretoDistance);
+					out.println("    </statistics>");
+				}
+				out.println("</agentsStatistics>");
+			} finally {
+				out.close();
+			}
+			Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Writes the variance and quantiles of a distribution, e.g.
+	 * varianceUndiscounted and p10Undiscounted.
+	 */
+	private static void distribution(PrintWriter out, String name, Distribution distribution) {
+		element(out, "variance" + name, distribution.getVariance());
+		for (double p : QUANTILES) {
+			element(out, String.format(Locale.US, "p%02d%s", Math.round(p * 100), name), distribution.getQuantile(p));
+		}
+	}
+
+	private static void element(PrintWriter out, String name, Object value) {
+		out.println("        <" + name + ">" + value + "</" + name + ">");
+	}
+}
@@ -0,0 +1,132 @@
+package mas2023.tournament;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.w3c.dom.Element;
+
+import genius.core.DeadlineType;
+
+/**
+ * A tournament of multilateraltournament.xml, as saved by the Genius GUI.
+ * The sessions are generated like the GUI does: every combination of
+ * numberOfPartiesPerSession parties (with repetition if it is allowed)
+ * negotiates once with every ordered selection of distinct profiles, and all
+ * of this is repeated the configured number of times.
+ */
+public class TournamentConfig {
+
+	private final List<PartySpec> parties = new ArrayList<PartySpec>();
+	private final List<String> profiles = new ArrayList<String>();
+	private int deadlineValue;
+	private DeadlineType deadlineType;
+	private int repeats;
+	private int partiesPerSession;
+	private boolean repetitionAllowed;
+
+	/**
+	 * Reads the tournaments of the given file, resolving the parties in the
+	 * repositories.
+	 */
+	public static List<TournamentConfig> load(File file, Repositories repositories) throws Exception {
+		List<TournamentConfig> tournaments = new ArrayList<TournamentConfig>();
+		for (Element element : Repositories.elements(Repositories.parse(file), "tournament")) {
+			TournamentConfig tournament = new TournamentConfig();
+			Element deadline = Repositories.elements(element, "deadline").get(0);
+			tournament.deadlineValue = Integer.parseInt(text(deadline, "value"));
+			tournament.deadlineType = DeadlineType.valueOf(text(deadline, "type"));
+			for (Element party : Repositories.elements(element, "party")) {
+				tournament.parties.add(repositories.getParty(party.getAttribute("classPath")));
+			}
+			Element profileItems = Repositories.elements(element, "partyProfileItems").get(0);
+			for (Element profile : Repositories.elements(profileItems, "item")) {
+				tournament.profiles.add(Repositories.stripUrl(profile.getAttribute("url")));
+			}
+			tournament.repeats = Integer.parseInt(text(element, "repeats"));
+			tournament.partiesPerSession = Integer.parseInt(text(element, "numberOfPartiesPerSession"));
+			tournament.repetitionAllowed = Boolean.parseBoolean(text(element, "repetitionAllowed"));
+			tournaments.add(tournament);
+		}
+		return tournaments;
+	}
+
+	private static String text(Element parent, String tag) {
+		return Repositories.elements(parent, tag).get(0).getTextContent().trim();
+	}
+
+	public List<PartySpec> getParties() {
+		return parties;
+	}
+
+	public List<String> getProfiles() {
+		return profiles;
+	}
+
+	public int getDeadlineValue() {
+		return deadlineValue;
+	}
+
+	public DeadlineType getDeadlineType() {
+		return deadlineType;
+	}
+
+	/**
+	 * Generates the sessions of this tournament, numbered from the given
+	 * first number.
+	 */
+	public List<SessionSpec> generateSessions(Repositories repositories, int firstNumber) {
+		List<SessionSpec> sessions = new ArrayList<SessionSpec>();
+		List<int[]> partyCombinations = new ArrayList<int[]>();
+		combinations(new int[partiesPerSession], 0, 0, partyCombinations);
+		List<int[]> profileSelections = new ArrayList<int[]>();
+		selections(new int[partiesPerSession], new boolean[profiles.size()], 0, profileSelections);
+
+		for (int repeat = 0; repeat < repeats; repeat++) {
+			for (int[] partyCombination : partyCombinations) {
+				for (int[] profileSelection : profileSelections) {
+					List<PartySpec> sessionParties = new ArrayList<PartySpec>(partiesPerSession);
+					List<String> sessionProfiles = new ArrayList<String>(partiesPerSession);
+					for (int i = 0; i < partiesPerSession; i++) {
+						sessionParties.add(parties.get(partyCombination[i]));
+						sessionProfiles.add(profiles.get(profileSelection[i]));
+					}
+					String domain = repositories.getDomain(sessionProfiles.get(0));
+					if (domain == null) {
+						throw new IllegalArgumentException(
+								"The domain of " + sessionProfiles.get(0) + " is not in the domain repository");
+					}
+					sessions.add(new SessionSpec(firstNumber + sessions.size(), sessionParties, sessionProfiles,
+							domain, deadlineValue, deadlineType));
+				}
+			}
+		}
+		return sessions;
+	}
+
+	private void combinations(int[] current, int position, int from, List<int[]> result) {
+		if (position == current.length) {
+			result.add(current.clone());
+			return;
+		}
+		for (int p = from; p < parties.size(); p++) {
+			current[position] = p;
+			combinations(current, position + 1, repetitionAllowed ? p : p + 1, result);
+		}
+	}
+
+	private void selections(int[] current, boolean[] used, int position, List<int[]> result) {
+		if (position == current.length) {
+			result.add(current.clone());
+			return;
+		}
+		for (int p = 0; p < profiles.size(); p++) {
+			if (!used[p]) {
+				used[p] = true;
+				current[position] = p;
+				selections(current, used, position + 1, result);
+				used[p] = false;
+			}
+		}
+	}
+}
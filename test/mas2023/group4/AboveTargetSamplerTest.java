@@ -0,0 +1,119 @@
+package mas2023.group4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import genius.core.Bid;
+
+/**
+ * Checks the sampler against every bid of small domains: the counted bids
+ * are exactly the bids above the threshold, no drawn bid is below it, and
+ * the drawn bids are uniform.
+ */
+public class AboveTargetSamplerTest {
+
+	private static final double EPSILON = 1e-12;
+
+	@Test
+	public void countsExactlyTheBidsAboveTheThreshold() {
+		Random random = new Random(13);
+		for (int trial = 0; trial < 40; trial++) {
+			BidCodec codec = new BidCodec(TestDomains.domain(randomSizes(random)));
+			double[][] table = TestDomains.table(codec, random, 30, 1 / 97.0);
+			double[] utilities = utilities(codec, table);
+			for (int t = 0; t < 5; t++) {
+				// the utility of a bid, which lies exactly on the threshold
+				double threshold = utilities[random.nextInt(utilities.length)];
+				AboveTargetSampler sampler = new AboveTargetSampler(codec, table, threshold);
+				assertEquals(above(utilities, threshold), sampler.size(), 0);
+				for (int draw = 0; draw < 200; draw++) {
+					Bid bid = sampler.sample(random);
+					assertTrue(BidCodec.utility(table, codec.encode(bid)) >= threshold - EPSILON);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void drawsUniformly() {
+		Random random = new Random(17);
+		int[] sizes = { 5, 4, 6, 3 };
+		BidCodec codec = new BidCodec(TestDomains.domain(sizes));
+		double[][] table = TestDomains.table(codec, random, 40, 1 / 163.0);
+		double[] utilities = utilities(codec, table);
+		double[] sorted = utilities.clone();
+		Arrays.sort(sorted);
+		double threshold = sorted[sorted.length - 30];
+		AboveTargetSampler sampler = new AboveTargetSampler(codec, table, threshold);
+		int bids = above(utilities, threshold);
+		assertEquals(bids, sampler.size(), 0);
+
+		int draws = 300 * bids;
+		int[] counts = new int[utilities.length];
+		for (int draw = 0; draw < draws; draw++) {
+			counts[(int) codec.pack(codec.encode(sampler.sample(random)))]++;
+		}
+		double expected = draws / (double) bids;
+		double chiSquare = 0;
+		for (int k = 0; k < utilities.length; k++) {
+			if (utilities[k] >= threshold - EPSILON) {
+				chiSquare += (counts[k] - expected) * (counts[k] - expected) / expected;
+			} else {
+				assertEquals(0, counts[k]);
+			}
+		}
+		// far above the 0.999 quantile for the at most 40 degrees of freedom
+		assertTrue(chiSquare < 80);
+	}
+
+	@Test
+	public void infeasibleThreshold() {
+		BidCodec codec = new BidCodec(TestDomains.domain(2, 3));
+		double[][] table = { { 0.1, 0.3 }, { 0.2, 0.1, 0.4 } };
+		AboveTargetSampler sampler = new AboveTargetSampler(codec, table, 0.8);
+		assertTrue(!sampler.isFeasible());
+		assertEquals(0, sampler.size(), 0);
+		assertNull(sampler.sample(new Random(1)));
+	}
+
+	private static int[] randomSizes(Random random) {
+		int[] sizes = new int[1 + random.nextInt(6)];
+		for (int i = 0; i < sizes.length; i++) {
+			sizes[i] = 1 + random.nextInt(6);
+		}
+		return sizes;
+	}
+
+	/**
+	 * @return the utility of every bid of the domain, at its packed code.
+	 */
+	private static double[] utilities(BidCodec codec, double[][] table) {
+		int size = 1;
+		for (double[] row : table) {
+			size *= row.length;
+		}
+		double[] utilities = new double[size];
+		int[] code = new int[table.length];
+		for (int k = 0; k < size; k++) {
+			codec.unpack(k, code);
+			utilities[k] = BidCodec.utility(table, code);
+		}
+		return utilities;
+	}
+
+	private static int above(double[] utilities, double threshold) {
+		int count = 0;
+		for (double utility : utilities) {
+			if (utility >= threshold - EPSILON) {
+				count++;
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,230 @@
+package mas2023.group4;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import org.junit.Test;
+
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.NegotiationSession;
+import genius.core.issue.Issue;
+import genius.core.issue.IssueDiscrete;
+import genius.core.issue.Value;
+import genius.core.issue.ValueDiscrete;
+import genius.core.utility.AdditiveUtilitySpace;
+
+/**
+ * Checks that the incremental update of Group4_OM learns exactly the weights
+ * and evaluations of the original update, which rescanned the bid history
+ * every round and set the weights on the utility space one at a time.
+ */
+public class Group4_OMTest {
+
+	private static final double DELTA = 1e-12;
+	/** Issue numbers of which the HashMap order differs from their order */
+	private static final int[] NUMBERS = { 17, 3, 33, 8, 1 };
+	private static final int[] SIZES = { 4, 3, 5, 1, 2 };
+
+	@Test
+	public void defaultParameters() {
+		assertSameModel(new HashMap<String, Double>(), 4, 3);
+	}
+
+	@Test
+	public void hardHeadedParameters() {
+		Map<String, Double> parameters = new HashMap<String, Double>();
+		parameters.put("roundToUpdate", 3.0);
+		parameters.put("numberOfRounds", 2.0);
+		assertSameModel(parameters, 3, 2);
+	}
+
+	@Test
+	public void longerWindow() {
+		Map<String, Double> parameters = new HashMap<String, Double>();
+		parameters.put("l", 0.3);
+		parameters.put("roundToUpdate", 6.0);
+		parameters.put("numberOfRounds", 5.0);
+		assertSameModel(parameters, 6, 5);
+	}
+
+	private static void assertSameModel(Map<String, Double> parameters, int roundToUpdate, int numberOfRounds) {
+		Domain domain = TestDomains.domain(NUMBERS, SIZES);
+		NegotiationSession session = new NegotiationSession(null, new AdditiveUtilitySpace(domain), null);
+		Group4_OM model = new Group4_OM();
+		model.init(session, parameters);
+		double learnCoef = parameters.containsKey("l") ? parameters.get("l") : 0.2;
+		BaselineModel baseline = new BaselineModel(domain, learnCoef, roundToUpdate, numberOfRounds);
+		BidCodec codec = model.getCodec();
+
+		for (Bid bid : recordedBids(domain)) {
+			session.getOpponentBidHistory().add(new BidDetails(bid, 0));
+			model.updateModel(bid, 0);
+			baseline.update(session.getOpponentBidHistory().getHistory());
+
+			for (int i = 0; i < codec.getNumberOfIssues(); i++) {
+				Issue issue = domain.getIssues().get(i);
+				assertEquals(baseline.weights.get(codec.getIssueNumber(i)), model.getWeight(issue), DELTA);
+				for (int j = 0; j < codec.getNumberOfValues(i); j++) {
+					int expected = baseline.evaluations.get(codec.getIssueNumber(i)).get(codec.getValue(i, j));
+					assertEquals(expected, model.getEvaluation(i, j));
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return an opponent which concedes on a few issues per bid, and
+	 *         sometimes repeats its bid.
+	 */
+	private static List<Bid> recordedBids(Domain domain) {
+		Random random = new Random(42);
+		int[] code = new int[SIZES.length];
+		List<Bid> bids = new ArrayList<Bid>();
+		for (int round = 0; round < 60; round++) {
+			int changes = random.nextInt(3);
+			for (int c = 0; c < changes; c++) {
+				int i = random.nextInt(SIZES.length);
+				code[i] = random.nextInt(SIZES[i]);
+			}
+			bids.add(TestDomains.bid(domain, code));
+		}
+		return bids;
+	}
+
+	/**
+	 * The original update of Group4_OM on plain maps. The weights are set like
+	 * AdditiveUtilitySpace.setWeight, followed by normalizeWeights, and the
+	 * evaluations are normalized like EvaluatorDiscrete.getEvaluation.
+	 */
+	private static class BaselineModel {
+
+		private static final double RENORMALCORR = 0.05;
+
+		final Domain domain;
+		final double goldenValue;
+		final int roundToUpdate;
+		final int numberOfRounds;
+		/** Weight per issue number */
+		final Map<Integer, Double> weights = new HashMap<Integer, Double>();
+		/** Evaluation per issue number and value */
+		final Map<Integer, Map<ValueDiscrete, Integer>> evaluations = new HashMap<Integer, Map<ValueDiscrete, Integer>>();
+
+		BaselineModel(Domain domain, double learnCoef, int roundToUpdate, int numberOfRounds) {
+			this.domain = domain;
+			this.roundToUpdate = roundToUpdate;
+			this.numberOfRounds = numberOfRounds;
+			int amountOfIssues = domain.getIssues().size();
+			goldenValue = learnCoef / amountOfIssues;
+			for (Issue issue : domain.getIssues()) {
+				weights.put(issue.getNumber(), 1D / amountOfIssues);
+				Map<ValueDiscrete, Integer> evaluation = new HashMap<ValueDiscrete, Integer>();
+				for (ValueDiscrete value : ((IssueDiscrete) issue).getValues()) {
+					evaluation.put(value, 1);
+				}
+				evaluations.put(issue.getNumber(), evaluation);
+			}
+		}
+
+		void update(List<BidDetails> history) {
+			int historySize = history.size();
+			if (historySize < roundToUpdate) {
+				return;
+			}
+			int numberOfUnchanged = 0;
+			List<HashMap<Integer, Integer>> diffs = new ArrayList<HashMap<Integer, Integer>>();
+			for (int i = 1; i <= numberOfRounds - 1; i++) {
+				int previousRoundIndex = historySize - 1;
+				int prevPreviousRoundIndex = historySize - 1 - i;
+				if (prevPreviousRoundIndex <= 0) {
+					break;
+				}
+				diffs.add(determineDifference(history.get(prevPreviousRoundIndex), history.get(previousRoundIndex)));
+			}
+			for (HashMap<Integer, Integer> diff : diffs) {
+				for (Integer i : diff.keySet()) {
+					if (diff.get(i) == 0) {
+						numberOfUnchanged++;
+					}
+				}
+			}
+			double totalSum = 1D + goldenValue * numberOfUnchanged;
+			for (HashMap<Integer, Integer> diff : diffs) {
+				for (Entry<Integer, Integer> e : diff.entrySet()) {
+					double weight = weights.get(e.getKey());
+					setWeight(e.getKey(), (weight + goldenValue * e.getValue()) / totalSum);
+					normalizeWeights();
+				}
+			}
+
+			for (Issue issue : domain.getIssues()) {
+				Map<ValueDiscrete, Integer> evaluation = evaluations.get(issue.getNumber());
+				for (ValueDiscrete value : ((IssueDiscrete) issue).getValues()) {
+					int lastNumberOfRealBidsWithValue = 0;
+					for (int i = 0; i < numberOfRounds - 1; i++) {
+						Bid bid = history.get(historySize - 1 - i).getBid();
+						if (bid.getValue(issue.getNumber()).equals(value)) {
+							lastNumberOfRealBidsWithValue++;
+						}
+					}
+					int max = 0;
+					for (int e : evaluation.values()) {
+						max = Math.max(max, e);
+					}
+					double normalized = max > 0 ? evaluation.get(value) / (double) max : 0;
+					evaluation.put(value, (int) (normalized + lastNumberOfRealBidsWithValue));
+				}
+			}
+		}
+
+		private HashMap<Integer, Integer> determineDifference(BidDetails first, BidDetails second) {
+			HashMap<Integer, Integer> diff = new HashMap<Integer, Integer>();
+			for (Issue i : domain.getIssues()) {
+				Value value1 = first.getBid().getValue(i.getNumber());
+				Value value2 = second.getBid().getValue(i.getNumber());
+				diff.put(i.getNumber(), value1.equals(value2) ? 0 : 1);
+			}
+			return diff;
+		}
+
+		private void setWeight(int issue, double weight) {
+			double old = weights.get(issue);
+			weights.put(issue, weight);
+			normalizeWeights();
+			double sum = 0;
+			for (double w : weights.values()) {
+				sum += w;
+			}
+			if (sum <= .98 || sum >= 1.02) {
+				weights.put(issue, old);
+			}
+		}
+
+		/**
+		 * normalizeChildren of the root objective.
+		 */
+		private void normalizeWeights() {
+			if (weights.size() == 1) {
+				weights.replaceAll((issue, weight) -> 1.0);
+				return;
+			}
+			double sum = 0;
+			for (double w : weights.values()) {
+				sum += w;
+			}
+			double diff = sum - 1.0;
+			double correctedSum = sum + RENORMALCORR * weights.size();
+			for (Issue issue : domain.getIssues()) {
+				double w = weights.get(issue.getNumber());
+				weights.put(issue.getNumber(), Math.max(0, w - diff * (w + RENORMALCORR) / correctedSum));
+			}
+		}
+	}
+}
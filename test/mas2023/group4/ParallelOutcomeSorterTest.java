@@ -0,0 +1,83 @@
+package mas2023.group4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+/**
+ * Checks that the parallel sorter orders the bids exactly like the
+ * sequential stable sort, on domains with many equal utilities.
+ */
+public class ParallelOutcomeSorterTest {
+
+	private static final int THRESHOLD = ParallelOutcomeSorter.SEQUENTIAL_THRESHOLD;
+
+	@Test
+	public void smallDomainWithTies() {
+		assertSortedAsReference(new int[] { 3, 1, 4, 2, 5 });
+	}
+
+	@Test
+	public void sizesAroundTheSequentialThreshold() {
+		assertSortedAsReference(new int[] { 2, THRESHOLD / 2 });
+		assertSortedAsReference(new int[] { THRESHOLD + 1 });
+		assertSortedAsReference(new int[] { 2, 1, THRESHOLD / 2 + 1 });
+		assertSortedAsReference(new int[] { 3, 5, 7, 11, 13 });
+	}
+
+	@Test
+	public void singleValueIssues() {
+		assertSortedAsReference(new int[] { 1 });
+		assertSortedAsReference(new int[] { 1, 1, 1 });
+		assertSortedAsReference(new int[] { 1, THRESHOLD + 3 });
+		assertSortedAsReference(new int[] { 1, 3, 1, 5000, 1 });
+		assertSortedAsReference(new int[] { 17, 1, 1, 1000, 1 });
+	}
+
+	@Test
+	public void rangesOfTheDomain() {
+		int[] sizes = { 5, 7, 11, 13, 3 };
+		// whole values of the first and the second issue
+		assertSortedAsReference(sizes, 3003, 2 * 3003);
+		assertSortedAsReference(sizes, 429, 3 * 429);
+		// not aligned to any issue, split in halves
+		assertSortedAsReference(sizes, 1001, 10000);
+		assertSortedAsReference(sizes, 15014, 1);
+	}
+
+	private static void assertSortedAsReference(int[] sizes) {
+		long size = 1;
+		for (int values : sizes) {
+			size *= values;
+		}
+		assertSortedAsReference(sizes, 0, (int) size);
+	}
+
+	private static void assertSortedAsReference(int[] sizes, long first, int count) {
+		BidCodec codec = new BidCodec(TestDomains.domain(sizes));
+		double[][] table = TestDomains.table(codec, new Random(count), 3, 0.125);
+
+		double[] expectedUtilities = new double[count];
+		int[] code = new int[sizes.length];
+		for (int k = 0; k < count; k++) {
+			codec.unpack(first + k, code);
+			expectedUtilities[k] = BidCodec.utility(table, code);
+		}
+		int[] expectedOrder = ParallelOutcomeSorter.sortDescending(expectedUtilities);
+
+		ParallelOutcomeSorter sorter = new ParallelOutcomeSorter(codec, table, first, count);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			sorter.sort(pool);
+		} finally {
+			pool.shutdown();
+		}
+		assertEquals(count, sorter.size());
+		assertArrayEquals(expectedUtilities, sorter.getUtilities(), 0);
+		assertArrayEquals(expectedOrder, sorter.getOrder());
+	}
+}
@@ -0,0 +1,192 @@
+package mas2023.group4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import genius.core.bidding.BidDetails;
+
+/**
+ * Checks the frontier against a brute-force skyline over every bid of the
+ * domain, after building, after updates of the opponent model and after
+ * thinning.
+ */
+public class ParetoFrontierTest {
+
+	private static final double DELTA = 1e-9;
+
+	@Test
+	public void exactOnSmallDomains() {
+		Random random = new Random(7);
+		for (int trial = 0; trial < 30; trial++) {
+			BidCodec codec = new BidCodec(TestDomains.domain(randomSizes(random)));
+			double[][] own = TestDomains.table(codec, random, 20, 1 / 37.0);
+			double[][] opponent = TestDomains.table(codec, random, 20, 1 / 37.0);
+			ParetoFrontier frontier = new ParetoFrontier(codec, own);
+			frontier.update(opponent);
+			assertExact(codec, own, opponent, frontier, random);
+		}
+	}
+
+	@Test
+	public void exactAfterUpdates() {
+		Random random = new Random(11);
+		for (int trial = 0; trial < 30; trial++) {
+			BidCodec codec = new BidCodec(TestDomains.domain(randomSizes(random)));
+			double[][] own = TestDomains.table(codec, random, 20, 1 / 37.0);
+			double[][] opponent = TestDomains.table(codec, random, 20, 1 / 37.0);
+			ParetoFrontier frontier = new ParetoFrontier(codec, own);
+			frontier.update(opponent);
+			for (int step = 0; step < 4; step++) {
+				// a new table, like Group4_OM builds, with every row rescaled and one row changed
+				double factor = 0.3 + random.nextDouble();
+				double[][] next = new double[opponent.length][];
+				for (int i = 0; i < next.length; i++) {
+					next[i] = opponent[i].clone();
+					for (int j = 0; j < next[i].length; j++) {
+						next[i][j] *= factor;
+					}
+				}
+				int changed = random.nextInt(next.length);
+				for (int j = 0; j < next[changed].length; j++) {
+					next[changed][j] = random.nextInt(20) / 37.0;
+				}
+				opponent = next;
+				frontier.update(opponent);
+				assertExact(codec, own, opponent, frontier, random);
+			}
+		}
+	}
+
+	@Test
+	public void thinnedFrontierKeepsTheBestBidAndSmallGaps() {
+		// every bid of the domain is on the frontier, far more than a node keeps
+		int n = 11;
+		int[] sizes = new int[n];
+		Arrays.fill(sizes, 2);
+		BidCodec codec = new BidCodec(TestDomains.domain(sizes));
+		double[][] own = new double[n][2];
+		double[][] opponent = new double[n][2];
+		for (int i = 0; i < n; i++) {
+			own[i][1] = (1 << i) / 2047.0;
+			opponent[i][0] = (1 << i) / 2047.0;
+		}
+		ParetoFrontier frontier = new ParetoFrontier(codec, own);
+		frontier.update(opponent);
+		assertTrue(frontier.size() < 2048);
+		assertEquals(1, frontier.getBidAtLeast(2).getMyUndiscountedUtil(), DELTA);
+		for (double target = 0; target <= 1; target += 0.001) {
+			double utility = frontier.getBidAtLeast(target).getMyUndiscountedUtil();
+			assertTrue(utility >= target - DELTA);
+			assertTrue(utility - target <= 0.01);
+		}
+	}
+
+	@Test
+	public void thinnedFrontierIsBelowTheSkyline() {
+		Random random = new Random(3);
+		int[] sizes = { 8, 8, 8, 8, 8, 8 };
+		BidCodec codec = new BidCodec(TestDomains.domain(sizes));
+		double[][] own = new double[sizes.length][8];
+		double[][] opponent = new double[sizes.length][8];
+		for (int i = 0; i < sizes.length; i++) {
+			for (int j = 0; j < 8; j++) {
+				own[i][j] = random.nextDouble() / sizes.length;
+				opponent[i][j] = random.nextDouble() / sizes.length;
+			}
+		}
+		ParetoFrontier frontier = new ParetoFrontier(codec, own);
+		frontier.update(opponent);
+		Skyline skyline = new Skyline(codec, own, opponent);
+		for (double target = 0; target <= 1; target += 0.01) {
+			BidDetails bid = frontier.getBidAtLeast(target);
+			int[] code = codec.encode(bid.getBid());
+			double utility = BidCodec.utility(own, code);
+			assertEquals(utility, bid.getMyUndiscountedUtil(), DELTA);
+			if (target <= skyline.maxOwn) {
+				assertTrue(utility >= target - DELTA);
+				assertTrue(BidCodec.utility(opponent, code) <= skyline.bestOpponentAtLeast(target) + DELTA);
+			} else {
+				assertEquals(skyline.maxOwn, utility, DELTA);
+			}
+		}
+	}
+
+	private static int[] randomSizes(Random random) {
+		int[] sizes = new int[1 + random.nextInt(6)];
+		for (int i = 0; i < sizes.length; i++) {
+			sizes[i] = 1 + random.nextInt(6);
+		}
+		return sizes;
+	}
+
+	private static void assertExact(BidCodec codec, double[][] own, double[][] opponent, ParetoFrontier frontier,
+			Random random) {
+		Skyline skyline = new Skyline(codec, own, opponent);
+		for (int query = 0; query < 100; query++) {
+			double target = random.nextDouble() * own.length * 0.6;
+			BidDetails bid = frontier.getBidAtLeast(target);
+			int[] code = codec.encode(bid.getBid());
+			assertEquals(BidCodec.utility(own, code), bid.getMyUndiscountedUtil(), DELTA);
+			double expected;
+			if (target <= skyline.maxOwn) {
+				expected = skyline.bestOpponentAtLeast(target);
+			} else {
+				// none reaches the target, the bid with the highest own utility
+				assertEquals(skyline.maxOwn, bid.getMyUndiscountedUtil(), DELTA);
+				expected = skyline.opponentAtMaxOwn;
+			}
+			assertEquals(expected, BidCodec.utility(opponent, code), DELTA);
+			assertEquals(expected, frontier.getOpponentUtilityAtLeast(target), DELTA);
+		}
+		assertEquals(skyline.maxOwn, frontier.getBidAtLeast(Double.MAX_VALUE).getMyUndiscountedUtil(), DELTA);
+	}
+
+	/**
+	 * The utilities of every bid of the domain.
+	 */
+	private static class Skyline {
+
+		final double[] own;
+		final double[] opponent;
+		double maxOwn = Double.NEGATIVE_INFINITY;
+		double opponentAtMaxOwn;
+
+		Skyline(BidCodec codec, double[][] ownTable, double[][] opponentTable) {
+			int size = 1;
+			for (double[] row : ownTable) {
+				size *= row.length;
+			}
+			own = new double[size];
+			opponent = new double[size];
+			int[] code = new int[ownTable.length];
+			for (int k = 0; k < size; k++) {
+				codec.unpack(k, code);
+				own[k] = BidCodec.utility(ownTable, code);
+				opponent[k] = BidCodec.utility(opponentTable, code);
+				if (own[k] > maxOwn || (own[k] == maxOwn && opponent[k] > opponentAtMaxOwn)) {
+					maxOwn = own[k];
+					opponentAtMaxOwn = opponent[k];
+				}
+			}
+		}
+
+		/**
+		 * @return the highest opponent utility of the bids with an own
+		 *         utility of at least the target.
+		 */
+		double bestOpponentAtLeast(double target) {
+			double best = Double.NEGATIVE_INFINITY;
+			for (int k = 0; k < own.length; k++) {
+				if (own[k] >= target) {
+					best = Math.max(best, opponent[k]);
+				}
+			}
+			return best;
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package mas2023.group4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.uncertainty.BidRanking;
+
+/**
+ * Checks that the fitted contributions reproduce the order of a ranking drawn
+ * from a known additive utility, and that the cache tells rankings with the
+ * same hash apart.
+ */
+public class RankingEstimatorTest {
+
+	private static final int[] SIZES = { 3, 4, 2, 3, 5 };
+
+	@Test
+	public void reproducesTheOrderOfAKnownRanking() {
+		Random random = new Random(5);
+		for (int trial = 0; trial < 10; trial++) {
+			Domain domain = TestDomains.domain(SIZES);
+			BidCodec codec = new BidCodec(domain);
+			double[][] truth = TestDomains.table(codec, random, 100, 1 / (100.0 * SIZES.length));
+
+			// a ranking of a random part of the domain, from worst to best
+			List<Integer> indices = new ArrayList<Integer>();
+			int size = 1;
+			for (int values : SIZES) {
+				size *= values;
+			}
+			for (int k = 0; k < size; k++) {
+				indices.add(k);
+			}
+			Collections.shuffle(indices, random);
+			final double[] utilities = new double[size];
+			int[] code = new int[SIZES.length];
+			for (int k = 0; k < utilities.length; k++) {
+				codec.unpack(k, code);
+				utilities[k] = BidCodec.utility(truth, code);
+			}
+			List<Integer> ranked = new ArrayList<Integer>(indices.subList(0, 40));
+			Collections.sort(ranked, (a, b) -> Double.compare(utilities[a], utilities[b]));
+			List<Bid> bidOrder = new ArrayList<Bid>();
+			for (int k : ranked) {
+				codec.unpack(k, code);
+				bidOrder.add(TestDomains.bid(domain, code));
+			}
+			BidRanking ranking = new BidRanking(bidOrder, utilities[ranked.get(0)],
+					utilities[ranked.get(ranked.size() - 1)]);
+
+			double[][] fitted = new RankingEstimator(domain).contributions(ranking);
+			double[] estimates = new double[utilities.length];
+			for (int k = 0; k < utilities.length; k++) {
+				codec.unpack(k, code);
+				estimates[k] = BidCodec.utility(fitted, code);
+			}
+			assertTrue(concordance(utilities, estimates, ranked) >= 0.9);
+			assertTrue(concordance(utilities, estimates, indices) >= 0.75);
+		}
+	}
+
+	@Test
+	public void rankingsWithTheSameHashAreFittedApart() {
+		// a step of one in a value is undone by a step of 31 in the next one
+		Domain domain = TestDomains.domain(2, 32);
+		List<Bid> first = Arrays.asList(TestDomains.bid(domain, 0, 31), TestDomains.bid(domain, 1, 5));
+		List<Bid> second = Arrays.asList(TestDomains.bid(domain, 1, 0), TestDomains.bid(domain, 1, 5));
+
+		RankingEstimator estimator = new RankingEstimator(domain);
+		double[][] fittedFirst = estimator.contributions(new BidRanking(first, 0.2, 0.9));
+		double[][] fittedSecond = estimator.contributions(new BidRanking(second, 0.2, 0.9));
+
+		BidCodec codec = new BidCodec(domain);
+		assertEquals(codec.encode(first.get(0))[0] * 31 + codec.encode(first.get(0))[1],
+				codec.encode(second.get(0))[0] * 31 + codec.encode(second.get(0))[1]);
+		assertArrayEquals(fittedFirst[1], fit(estimator, codec, first)[1], 0);
+		assertArrayEquals(fittedSecond[1], fit(estimator, codec, second)[1], 0);
+		assertTrue(fittedFirst[1][31] != fittedSecond[1][31]);
+		// the same ranking again is taken from the cache
+		assertSame(fittedSecond, estimator.contributions(new BidRanking(second, 0.2, 0.9)));
+	}
+
+	private static double[][] fit(RankingEstimator estimator, BidCodec codec, List<Bid> bidOrder) {
+		int[][] codes = new int[bidOrder.size()][];
+		for (int k = 0; k < codes.length; k++) {
+			codes[k] = codec.encode(bidOrder.get(k));
+		}
+		return estimator.fit(codes, 0.2, 0.9);
+	}
+
+	/**
+	 * @return the fraction of the pairs of the given bids with different
+	 *         utilities which the estimates order the same way.
+	 */
+	private static double concordance(double[] utilities, double[] estimates, List<Integer> bids) {
+		int pairs = 0;
+		int concordant = 0;
+		for (int a : bids) {
+			for (int b : bids) {
+				if (utilities[a] < utilities[b]) {
+					pairs++;
+					if (estimates[a] < estimates[b]) {
+						concordant++;
+					}
+				}
+			}
+		}
+		return concordant / (double) pairs;
+	}
+}
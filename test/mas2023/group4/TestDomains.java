@@ -0,0 +1,78 @@
+package mas2023.group4;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.DomainImpl;
+import genius.core.issue.Issue;
+import genius.core.issue.IssueDiscrete;
+import genius.core.issue.Objective;
+import genius.core.issue.Value;
+
+/**
+ * Small domains with discrete issues and random contribution tables for the
+ * tests.
+ */
+class TestDomains {
+
+	/**
+	 * @return a domain with an issue of the given number of values for every
+	 *         size.
+	 */
+	static Domain domain(int... sizes) {
+		int[] numbers = new int[sizes.length];
+		for (int i = 0; i < sizes.length; i++) {
+			numbers[i] = i + 1;
+		}
+		return domain(numbers, sizes);
+	}
+
+	/**
+	 * @return a domain with an issue of the given number and number of
+	 *         values for every size.
+	 */
+	static Domain domain(int[] numbers, int[] sizes) {
+		Objective root = new Objective(null, "root", 0);
+		for (int i = 0; i < sizes.length; i++) {
+			String[] values = new String[sizes[i]];
+			for (int j = 0; j < values.length; j++) {
+				values[j] = "v" + j;
+			}
+			IssueDiscrete issue = new IssueDiscrete("issue" + numbers[i], numbers[i], values);
+			issue.setParent(root);
+			root.addChild(issue);
+		}
+		DomainImpl domain = new DomainImpl();
+		domain.setObjectivesRoot(root);
+		return domain;
+	}
+
+	/**
+	 * @return a table of contributions which are multiples of step below
+	 *         levels * step, so that many bids have equal utilities.
+	 */
+	static double[][] table(BidCodec codec, Random random, int levels, double step) {
+		double[][] table = new double[codec.getNumberOfIssues()][];
+		for (int i = 0; i < table.length; i++) {
+			table[i] = new double[codec.getNumberOfValues(i)];
+			for (int j = 0; j < table[i].length; j++) {
+				table[i][j] = random.nextInt(levels) * step;
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * @return the bid with the value of the given index for every issue.
+	 */
+	static Bid bid(Domain domain, int... code) {
+		HashMap<Integer, Value> values = new HashMap<Integer, Value>();
+		for (int i = 0; i < code.length; i++) {
+			Issue issue = domain.getIssues().get(i);
+			values.put(issue.getNumber(), ((IssueDiscrete) issue).getValue(code[i]));
+		}
+		return new Bid(domain, values);
+	}
+}
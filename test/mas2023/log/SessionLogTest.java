@@ -0,0 +1,130 @@
+package mas2023.log;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Test;
+
+import genius.core.AgentID;
+import genius.core.Bid;
+import genius.core.DomainImpl;
+import genius.core.actions.Accept;
+import genius.core.actions.EndNegotiation;
+import genius.core.actions.Offer;
+import genius.core.issue.IssueDiscrete;
+import genius.core.issue.Objective;
+import genius.core.issue.Value;
+
+/**
+ * Writes session logs with the {@link SessionLogWriter} and reads them back
+ * with the {@link SessionLogReader} and the {@link SessionLogConverter}.
+ */
+public class SessionLogTest {
+
+	private static final String DOMAIN = "etc/templates/partydomain/party_domain.xml";
+	private static final String DEADLINE = "Deadline:60 ROUND";
+
+	@Test
+	public void readsBackEveryRecord() throws Exception {
+		DomainImpl domain = domain();
+		File file = temporaryFile(".bin");
+		SessionLogWriter writer = new SessionLogWriter();
+		SessionLogWriter.SessionLog log = writer.open(file, DOMAIN, DEADLINE);
+		log.action(1, 1, 0.25, "A@0", new Offer(new AgentID("A@0"), bid(domain, 1, 2)));
+		log.action(1, 2, 0.5, "B@1", new Offer(new AgentID("B@1"), bid(domain, 0, 0)));
+		log.action(2, 1, 0.75, "A@0", new Accept(new AgentID("A@0"), bid(domain, 0, 0)));
+		log.agreement(bid(domain, 0, 0), new double[] { 0.8, 0.6 });
+		log.close();
+		writer.close();
+
+		final List<String> records = new ArrayList<String>();
+		final SessionLogReader reader = new SessionLogReader();
+		reader.read(file, new SessionLogReader.Visitor() {
+			@Override
+			public void session(String domain, String deadline) {
+				records.add(domain + " " + deadline);
+			}
+
+			@Override
+			public void action(int round, int turn, double time, String agent, byte type, int[] bid,
+					String other) {
+				assertNull(other);
+				records.add(round + " " + turn + " " + time + " " + agent + " " + type + " " + reader.bidToString(bid));
+			}
+
+			@Override
+			public void agreement(int[] bid, double[] utilities) {
+				assertArrayEquals(new double[] { 0.8, 0.6 }, utilities, 0);
+				records.add(reader.bidToString(bid));
+			}
+		});
+		assertEquals(5, records.size());
+		assertEquals(DOMAIN + " " + DEADLINE, records.get(0));
+		assertEquals("1 1 0.25 A@0 " + SessionLogFormat.OFFER + " Bid[Food: Chips, Drinks: Wine]", records.get(1));
+		assertEquals("1 2 0.5 B@1 " + SessionLogFormat.OFFER + " Bid[Food: Catering, Drinks: Beer]",
+				records.get(2));
+		assertEquals("2 1 0.75 A@0 " + SessionLogFormat.ACCEPT + " Bid[Food: Catering, Drinks: Beer]",
+				records.get(3));
+		assertEquals("Bid[Food: Catering, Drinks: Beer]", records.get(4));
+	}
+
+	@Test
+	public void convertsToTheGeniusCsv() throws Exception {
+		DomainImpl domain = domain();
+		File file = temporaryFile(".bin");
+		SessionLogWriter writer = new SessionLogWriter();
+		SessionLogWriter.SessionLog log = writer.open(file, DOMAIN, DEADLINE);
+		// more than a buffer of offers, each with a new agent name
+		int offers = 5000;
+		for (int k = 0; k < offers; k++) {
+			log.action(k + 1, 1, k / (double) offers, "Agent" + k + "@0",
+					new Offer(new AgentID("A@0"), bid(domain, k % 2, k % 3)));
+		}
+		log.action(offers + 1, 1, 1, "Agent0@0", new EndNegotiation(new AgentID("A@0")));
+		log.close();
+		writer.close();
+
+		File csv = temporaryFile(".csv");
+		SessionLogConverter.convert(file, csv);
+		List<String> lines = Files.readAllLines(csv.toPath(), StandardCharsets.UTF_8);
+		assertEquals(offers + 1, lines.size());
+		assertEquals("1,1,0.0,Agent0@0,(Offer  bid:Bid[Food: Catering, Drinks: Beer])", lines.get(0));
+		assertEquals("4000,1,0.7998,Agent3999@0,(Offer  bid:Bid[Food: Chips, Drinks: Beer])", lines.get(3999));
+		assertEquals((offers + 1) + ",1,1.0,Agent0@0,(EndNegotiation)", lines.get(offers));
+	}
+
+	private static File temporaryFile(String suffix) throws IOException {
+		File file = File.createTempFile("session-log", suffix);
+		file.deleteOnExit();
+		return file;
+	}
+
+	private static DomainImpl domain() {
+		Objective root = new Objective(null, "root", 0);
+		IssueDiscrete food = new IssueDiscrete("Food", 1, new String[] { "Catering", "Chips" });
+		IssueDiscrete drinks = new IssueDiscrete("Drinks", 2, new String[] { "Beer", "Soda", "Wine" });
+		for (IssueDiscrete issue : new IssueDiscrete[] { food, drinks }) {
+			issue.setParent(root);
+			root.addChild(issue);
+		}
+		DomainImpl domain = new DomainImpl();
+		domain.setObjectivesRoot(root);
+		return domain;
+	}
+
+	private static Bid bid(DomainImpl domain, int food, int drinks) {
+		HashMap<Integer, Value> values = new HashMap<Integer, Value>();
+		values.put(1, ((IssueDiscrete) domain.getIssues().get(0)).getValue(food));
+		values.put(2, ((IssueDiscrete) domain.getIssues().get(1)).getValue(drinks));
+		return new Bid(domain, values);
+	}
+}